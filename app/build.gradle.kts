@@ -37,6 +37,7 @@ android {
 
 
 dependencies {
+    implementation(project(":core"))
     implementation("com.google.firebase:firebase-analytics")
     implementation(platform("com.google.firebase:firebase-bom:33.1.2"))
     implementation(libs.appcompat)
@@ -50,8 +51,16 @@ dependencies {
     implementation(libs.tensorflow.lite.metadata)
     implementation(libs.tensorflow.lite.gpu)
     testImplementation(libs.junit)
+    implementation ("androidx.exifinterface:exifinterface:1.3.7")
     implementation ("com.github.bumptech.glide:glide:4.12.0")
     annotationProcessor ("com.github.bumptech.glide:compiler:4.12.0")
+    implementation ("com.github.bumptech.glide:recyclerview-integration:4.12.0") {
+        isTransitive = false
+    }
+    implementation ("androidx.camera:camera-camera2:1.3.4")
+    implementation ("androidx.camera:camera-lifecycle:1.3.4")
+    implementation ("androidx.camera:camera-view:1.3.4")
+    implementation ("androidx.lifecycle:lifecycle-viewmodel:2.6.1")
 
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
@@ -60,7 +69,6 @@ dependencies {
     implementation("org.tensorflow:tensorflow-lite:2.11.0")
     implementation("org.tensorflow:tensorflow-lite-support:0.4.0")
     implementation("org.tensorflow:tensorflow-lite-metadata:0.1.0")
-    implementation ("com.squareup.picasso:picasso:2.71828")
     implementation ("com.google.mlkit:image-labeling:17.0.9")
     implementation ("com.google.firebase:firebase-ml-vision:24.0.3")
 
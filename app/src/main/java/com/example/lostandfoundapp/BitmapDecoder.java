@@ -0,0 +1,219 @@
+package com.example.lostandfoundapp;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+// Decodes picked or captured photos straight down to model size.
+// The full-resolution image is never held in memory: bounds are read first and the
+// decoder subsamples and scales while decoding, then EXIF rotation is applied on the small bitmap.
+public class BitmapDecoder {
+
+    public interface Callback {
+        void onDecoded(Bitmap bitmap);
+
+        void onError(IOException e);
+    }
+
+    private final ContentResolver contentResolver;
+    private final BitmapPool bitmapPool;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public BitmapDecoder(ContentResolver contentResolver, BitmapPool bitmapPool) {
+        this.contentResolver = contentResolver;
+        this.bitmapPool = bitmapPool;
+    }
+
+    // Decodes on the executor and delivers the result on the main thread
+    public void decodeAsync(Uri uri, int width, int height, Executor executor, Callback callback) {
+        executor.execute(() -> {
+            try {
+                Bitmap bitmap = decodeScaled(uri, width, height);
+                mainHandler.post(() -> callback.onDecoded(bitmap));
+            } catch (IOException e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    // A width x height pooled bitmap of the whole image, upright. Return it with BitmapPool.put when done.
+    public Bitmap decodeScaled(Uri uri, int width, int height) throws IOException {
+        Bitmap sampled = decodeSampled(uri, Math.max(width, height));
+        int orientation = readOrientation(uri);
+
+        long start = Metrics.start();
+        Bitmap scaled = bitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
+        Matrix matrix = new Matrix();
+        // Turn the image upright first, then stretch it to the target size (as createScaledBitmap did)
+        boolean swapsSides = applyOrientation(matrix, orientation, sampled.getWidth(), sampled.getHeight());
+        int uprightWidth = swapsSides ? sampled.getHeight() : sampled.getWidth();
+        int uprightHeight = swapsSides ? sampled.getWidth() : sampled.getHeight();
+        matrix.postScale(width / (float) uprightWidth, height / (float) uprightHeight);
+
+        new Canvas(scaled).drawBitmap(sampled, matrix, paint);
+        bitmapPool.put(sampled);
+        Metrics.record(Metrics.Stage.RESIZE, start);
+        return scaled;
+    }
+
+    // The whole image, upright, scaled down (never up) so its longer side is at most maxSide.
+    // Return it with BitmapPool.put when done.
+    public Bitmap decodeFitted(Uri uri, int maxSide) throws IOException {
+        BitmapFactory.Options bounds = readBounds(uri);
+        int longSide = Math.max(bounds.outWidth, bounds.outHeight);
+        int shortSide = Math.min(bounds.outWidth, bounds.outHeight);
+        float scale = Math.min(1f, maxSide / (float) longSide);
+        Bitmap sampled = decodeSampled(uri, Math.max(1, Math.round(shortSide * scale)));
+        int orientation = readOrientation(uri);
+
+        long start = Metrics.start();
+        Matrix matrix = new Matrix();
+        boolean swapsSides = applyOrientation(matrix, orientation, sampled.getWidth(), sampled.getHeight());
+        int uprightWidth = swapsSides ? sampled.getHeight() : sampled.getWidth();
+        int uprightHeight = swapsSides ? sampled.getWidth() : sampled.getHeight();
+        float fit = Math.min(1f, maxSide / (float) Math.max(uprightWidth, uprightHeight));
+        matrix.postScale(fit, fit);
+
+        int width = Math.max(1, Math.round(uprightWidth * fit));
+        int height = Math.max(1, Math.round(uprightHeight * fit));
+        Bitmap fitted = bitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
+        new Canvas(fitted).drawBitmap(sampled, matrix, paint);
+        bitmapPool.put(sampled);
+        Metrics.record(Metrics.Stage.RESIZE, start);
+        return fitted;
+    }
+
+    // Smallest decode whose shorter side is still at least minSide
+    public Bitmap decodeSampled(Uri uri, int minSide) throws IOException {
+        long start = Metrics.start();
+        BitmapFactory.Options options = readBounds(uri);
+        int shortSide = Math.min(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (shortSide / (sampleSize * 2) >= minSide) {
+            sampleSize *= 2;
+        }
+        int sampledShortSide = shortSide / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        if (sampledShortSide > minSide) {
+            // Let the decoder finish the downscale, so the result is close to minSide instead of up to 2x larger
+            options.inScaled = true;
+            options.inDensity = sampledShortSide;
+            options.inTargetDensity = minSide;
+        }
+
+        int expectedWidth = Math.max(1, (int) Math.ceil(options.outWidth / (double) sampleSize * minSide / Math.max(sampledShortSide, minSide)));
+        int expectedHeight = Math.max(1, (int) Math.ceil(options.outHeight / (double) sampleSize * minSide / Math.max(sampledShortSide, minSide)));
+        Bitmap reusable = bitmapPool.getReusable(expectedWidth * expectedHeight * 4);
+        options.inBitmap = reusable;
+
+        Bitmap bitmap;
+        try (InputStream in = open(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this image, decode into a fresh one
+            Log.w("BitmapDecoder", "inBitmap reuse failed, decoding without it", e);
+            options.inBitmap = null;
+            try (InputStream in = open(uri)) {
+                bitmap = BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+        if (bitmap == null) {
+            bitmapPool.put(reusable);
+            throw new IOException("Unable to decode " + uri);
+        }
+        if (bitmap == reusable) {
+            Metrics.increment(Metrics.Counter.BITMAPS_REUSED);
+        } else {
+            // Decoded into a new bitmap; the pooled one was not used and goes back
+            bitmapPool.put(reusable);
+            Metrics.bitmapAllocated(bitmap.getAllocationByteCount());
+            Metrics.increment(Metrics.Counter.BITMAPS_ALLOCATED);
+        }
+        Metrics.record(Metrics.Stage.DECODE, start);
+        return bitmap;
+    }
+
+    private BitmapFactory.Options readBounds(Uri uri) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds for " + uri);
+        }
+        return options;
+    }
+
+    private int readOrientation(Uri uri) {
+        try (InputStream in = open(uri)) {
+            return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL; // Not every image has EXIF data
+        }
+    }
+
+    // Sets matrix to turn a width x height image upright, moved back to the origin. Returns true if width and height swap.
+    private static boolean applyOrientation(Matrix matrix, int orientation, int width, int height) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                matrix.postTranslate(width, 0);
+                return false;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                matrix.postTranslate(width, height);
+                return false;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                matrix.postTranslate(0, height);
+                return false;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                return true;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                matrix.postTranslate(height, 0);
+                return true;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                matrix.postTranslate(height, width);
+                return true;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                matrix.postTranslate(0, width);
+                return true;
+            default:
+                matrix.reset();
+                return false;
+        }
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Unable to open " + uri);
+        }
+        return in;
+    }
+}
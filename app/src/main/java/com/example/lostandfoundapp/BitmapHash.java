@@ -0,0 +1,18 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+
+// PerceptualHash lives in :core without Android types; this feeds it a Bitmap's pixels
+public final class BitmapHash {
+
+    private BitmapHash() {
+    }
+
+    public static long dHash(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        return PerceptualHash.dHash(pixels, width, height);
+    }
+}
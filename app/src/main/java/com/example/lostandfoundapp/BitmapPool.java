@@ -0,0 +1,80 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+// Small pool of mutable bitmaps so the decode path does not allocate a new bitmap for every picked image.
+// Bitmaps it creates or recycles are counted in Metrics' bitmap bytes. Only bitmaps up to maxBytes are kept:
+// the pool serves model-sized images and their decode buffers, and one display-sized bitmap would hold more
+// memory than all of those together without ever being asked for again.
+public class BitmapPool {
+
+    private final int maxBitmaps;
+    private final int maxBytes;
+    private final ArrayDeque<Bitmap> pool = new ArrayDeque<>();
+
+    public BitmapPool(int maxBitmaps, int maxBytes) {
+        this.maxBitmaps = maxBitmaps;
+        this.maxBytes = maxBytes;
+    }
+
+    // A cleared bitmap with exactly this size and config, from the pool when possible
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Iterator<Bitmap> it = pool.iterator();
+        while (it.hasNext()) {
+            Bitmap bitmap = it.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                it.remove();
+                bitmap.eraseColor(0);
+                Metrics.increment(Metrics.Counter.BITMAPS_REUSED);
+                return bitmap;
+            }
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+        Metrics.bitmapAllocated(bitmap.getAllocationByteCount());
+        Metrics.increment(Metrics.Counter.BITMAPS_ALLOCATED);
+        return bitmap;
+    }
+
+    // Any pooled bitmap large enough to be passed to BitmapFactory as inBitmap, or null
+    public synchronized Bitmap getReusable(int byteCount) {
+        Iterator<Bitmap> it = pool.iterator();
+        while (it.hasNext()) {
+            Bitmap bitmap = it.next();
+            if (bitmap.getAllocationByteCount() >= byteCount) {
+                it.remove();
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    // The caller must not touch the bitmap afterwards
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        if (bitmap.getAllocationByteCount() > maxBytes) {
+            recycle(bitmap);
+            return;
+        }
+        if (pool.size() >= maxBitmaps) {
+            recycle(pool.pollFirst()); // Drop the oldest
+        }
+        pool.addLast(bitmap);
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : pool) {
+            recycle(bitmap);
+        }
+        pool.clear();
+    }
+
+    private static void recycle(Bitmap bitmap) {
+        Metrics.bitmapReleased(bitmap.getAllocationByteCount());
+        bitmap.recycle();
+    }
+}
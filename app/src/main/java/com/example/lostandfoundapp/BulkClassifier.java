@@ -0,0 +1,239 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Classifies many photos for bulk intake. Photos are decoded to model size on every core, a batch at a time,
+// and each batch goes through the model in one batched Interpreter call. While a batch is being classified
+// the next one is already decoding; at most MAX_BATCHES_IN_FLIGHT batches of bitmaps exist at once.
+public class BulkClassifier {
+
+    public static final int BATCH_SIZE = 8;
+    private static final int MAX_BATCHES_IN_FLIGHT = 2;
+
+    public static class Result {
+        public final Uri uri;
+        public final ClassificationResult classification;
+        public final long imageHash;
+
+        Result(Uri uri, ClassificationResult classification, long imageHash) {
+            this.uri = uri;
+            this.classification = classification;
+            this.imageHash = imageHash;
+        }
+    }
+
+    // All methods are called on the main thread
+    public interface Listener {
+        void onBatchClassified(List<Result> results);
+
+        // classified + failed out of total, and the classification rate since start
+        void onProgress(int classified, int failed, int total, float imagesPerSecond);
+
+        void onFinished(int classified, int failed, long elapsedMillis);
+    }
+
+    private final BitmapDecoder decoder;
+    private final BitmapPool bitmapPool;
+    private final ModelManager modelManager;
+    private final ExecutorService decodeExecutor;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Semaphore batchesInFlight = new Semaphore(MAX_BATCHES_IN_FLIGHT);
+    private volatile boolean cancelled;
+    // Batches handed to the scheduler and not yet finished, so cancel() can drop them. Guarded by itself.
+    private final List<InferenceScheduler.InferenceJob<?>> submittedJobs = new ArrayList<>();
+
+    // Main thread only
+    private int classified;
+    private int failed;
+    private int batchesDone;
+
+    // The model must be READY. Each batch uses whichever model is active when it starts, so a model swapped in
+    // during a long intake is picked up at the next batch.
+    public BulkClassifier(BitmapDecoder decoder, BitmapPool bitmapPool, ModelManager modelManager) {
+        this.decoder = decoder;
+        this.bitmapPool = bitmapPool;
+        this.modelManager = modelManager;
+        this.decodeExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Call once, on the main thread
+    public void start(List<Uri> uris, Listener listener) {
+        long start = SystemClock.elapsedRealtime();
+        int total = uris.size();
+        int batchCount = (total + BATCH_SIZE - 1) / BATCH_SIZE;
+        coordinator.execute(() -> {
+            for (int from = 0; from < total && !cancelled; from += BATCH_SIZE) {
+                try {
+                    batchesInFlight.acquire();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                InferenceScheduler scheduler = modelManager.getScheduler();
+                ModelSpec spec = scheduler.getModelSpec();
+                List<Uri> batchUris = uris.subList(from, Math.min(total, from + BATCH_SIZE));
+                List<Uri> decodedUris = new ArrayList<>();
+                List<Bitmap> bitmaps = new ArrayList<>();
+                List<Long> hashes = new ArrayList<>();
+                decodeBatch(batchUris, spec, decodedUris, bitmaps, hashes);
+                if (Thread.currentThread().isInterrupted()) {
+                    return; // Cancelled while decoding; the batch's bitmaps are already back in the pool
+                }
+                int decodeFailures = batchUris.size() - bitmaps.size();
+
+                InferenceScheduler.Callback<ClassificationResult[]> callback =
+                        batchCallback(listener, decodedUris, bitmaps, hashes, decodeFailures, total, batchCount, start);
+                if (bitmaps.isEmpty()) {
+                    // Nothing in this batch decoded, only the failures need counting
+                    mainHandler.post(() -> callback.onResult(new ClassificationResult[0]));
+                } else {
+                    InferenceScheduler.InferenceJob<ClassificationResult[]> job =
+                            scheduler.classifyBatch(InferenceScheduler.PRIORITY_BACKGROUND, bitmaps, callback);
+                    synchronized (submittedJobs) {
+                        if (cancelled) {
+                            job.cancel(); // cancel() ran while this batch was being submitted
+                        } else {
+                            submittedJobs.add(job);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    // Batches still queued for inference are dropped. Their bitmaps, and those of a batch already running,
+    // are left to the garbage collector since a running job may still be reading them.
+    public void cancel() {
+        cancelled = true;
+        synchronized (submittedJobs) {
+            for (InferenceScheduler.InferenceJob<?> job : submittedJobs) {
+                job.cancel();
+            }
+            submittedJobs.clear();
+        }
+        coordinator.shutdownNow();
+        decodeExecutor.shutdownNow();
+    }
+
+    // Decodes the batch in parallel, keeping input order; photos that fail to decode are logged and skipped
+    private void decodeBatch(List<Uri> uris, ModelSpec spec, List<Uri> decodedUris, List<Bitmap> bitmaps, List<Long> hashes) {
+        List<Future<Bitmap>> futures = new ArrayList<>();
+        for (Uri uri : uris) {
+            Callable<Bitmap> decode = () -> decoder.decodeScaled(uri, spec.getInputWidth(), spec.getInputHeight());
+            futures.add(decodeExecutor.submit(decode));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Bitmap bitmap = futures.get(i).get();
+                decodedUris.add(uris.get(i));
+                bitmaps.add(bitmap);
+                hashes.add(BitmapHash.dHash(bitmap));
+            } catch (ExecutionException e) {
+                Log.w("BulkClassifier", "Could not decode " + uris.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                // Cancelled: hand back what was decoded, including photos that finished after the interrupt
+                recycle(bitmaps);
+                decodedUris.clear();
+                bitmaps.clear();
+                hashes.clear();
+                for (int j = i; j < futures.size(); j++) {
+                    Future<Bitmap> future = futures.get(j);
+                    if (!future.cancel(true) && future.isDone()) {
+                        try {
+                            bitmapPool.put(future.get());
+                        } catch (ExecutionException | InterruptedException ignored) {
+                            // Failed to decode, nothing to return
+                        }
+                    }
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private InferenceScheduler.Callback<ClassificationResult[]> batchCallback(
+            Listener listener, List<Uri> uris, List<Bitmap> bitmaps, List<Long> hashes, int decodeFailures,
+            int total, int batchCount, long start) {
+        return new InferenceScheduler.Callback<ClassificationResult[]>() {
+            @Override
+            public void onResult(ClassificationResult[] classifications) {
+                finishBatch();
+                if (cancelled) {
+                    return;
+                }
+                failed += decodeFailures;
+                List<Result> results = new ArrayList<>(classifications.length);
+                for (int i = 0; i < classifications.length; i++) {
+                    results.add(new Result(uris.get(i), classifications[i], hashes.get(i)));
+                }
+                classified += results.size();
+                if (!results.isEmpty()) {
+                    listener.onBatchClassified(results);
+                }
+                report();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e("BulkClassifier", "Batch classification failed", e);
+                finishBatch();
+                if (cancelled) {
+                    return;
+                }
+                failed += decodeFailures + bitmaps.size();
+                report();
+            }
+
+            private void finishBatch() {
+                forgetFinishedJobs();
+                recycle(bitmaps);
+                batchesInFlight.release();
+                batchesDone++;
+            }
+
+            private void report() {
+                long elapsed = SystemClock.elapsedRealtime() - start;
+                float perSecond = elapsed > 0 ? classified * 1000f / elapsed : 0f;
+                listener.onProgress(classified, failed, total, perSecond);
+                if (batchesDone == batchCount) {
+                    listener.onFinished(classified, failed, elapsed);
+                    coordinator.shutdown();
+                    decodeExecutor.shutdown();
+                }
+            }
+        };
+    }
+
+    private void forgetFinishedJobs() {
+        synchronized (submittedJobs) {
+            Iterator<InferenceScheduler.InferenceJob<?>> it = submittedJobs.iterator();
+            while (it.hasNext()) {
+                if (it.next().isDone()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void recycle(List<Bitmap> bitmaps) {
+        for (Bitmap bitmap : bitmaps) {
+            bitmapPool.put(bitmap);
+        }
+    }
+}
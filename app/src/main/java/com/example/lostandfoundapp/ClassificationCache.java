@@ -0,0 +1,168 @@
+package com.example.lostandfoundapp;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+// Classification results by image content and model, so picking or submitting the same photo again skips
+// decoding and inference. The memory tier holds the most recent entries; every entry is also written to a
+// small file under the cache dir so it survives restarts, the least recently used files being deleted past
+// MAX_DISK_ENTRIES. Files are a compact binary record rather than JSON since most of each is the score vector.
+public class ClassificationCache {
+
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final int MAX_DISK_ENTRIES = 200;
+    private static final int FORMAT_VERSION = 1;
+
+    public static class Entry {
+        public final ClassificationResult result;
+        public final Long imageHash; // Perceptual hash of the photo, null if it was not computed
+        public final String modelHash; // The model that produced the result
+
+        Entry(ClassificationResult result, Long imageHash, String modelHash) {
+            this.result = result;
+            this.imageHash = imageHash;
+            this.modelHash = modelHash;
+        }
+    }
+
+    private final File directory;
+    private final Executor diskExecutor;
+    private final LruCache<String, Entry> memory = new LruCache<>(MAX_MEMORY_ENTRIES);
+
+    public ClassificationCache(File directory, Executor diskExecutor) {
+        this.directory = directory;
+        this.diskExecutor = diskExecutor;
+    }
+
+    // Hash of the image behind uri, or null if it can't be read. Reads the whole file, so call off the main thread.
+    public static String hashContent(ContentResolver resolver, Uri uri) {
+        try {
+            InputStream in = resolver.openInputStream(uri);
+            if (in == null) {
+                return null;
+            }
+            return ContentHash.sha256(in);
+        } catch (IOException | SecurityException e) {
+            Log.w("ClassificationCache", "Could not hash " + uri, e);
+            return null;
+        }
+    }
+
+    private static String key(String contentHash, String modelHash) {
+        return contentHash + "_" + modelHash;
+    }
+
+    // Memory first, then disk, so call off the main thread. Returned results must not be modified.
+    public Entry get(String contentHash, String modelHash) {
+        if (contentHash == null || modelHash == null) {
+            return null;
+        }
+        String key = key(contentHash, modelHash);
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = read(key, modelHash);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        Metrics.increment(entry != null ? Metrics.Counter.CLASSIFICATION_CACHE_HITS : Metrics.Counter.CLASSIFICATION_CACHE_MISSES);
+        return entry;
+    }
+
+    // Any thread; the result must not be modified afterwards. The file is written on the disk executor.
+    // modelHash must be that of the scheduler that produced the result, which can differ from the one the
+    // lookup used if the model was swapped in between.
+    public Entry put(String contentHash, String modelHash, ClassificationResult result, Long imageHash) {
+        String key = key(contentHash, modelHash);
+        Entry entry = new Entry(result, imageHash, modelHash);
+        memory.put(key, entry);
+        diskExecutor.execute(() -> write(key, entry));
+        return entry;
+    }
+
+    private Entry read(String key, String modelHash) {
+        File file = new File(directory, key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format");
+            }
+            ClassificationResult result = new ClassificationResult();
+            int labelId = in.readInt();
+            String name = in.readUTF();
+            float confidence = in.readFloat();
+            Long imageHash = in.readBoolean() ? in.readLong() : null;
+            float[] scores = result.scoresBuffer(in.readInt());
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = in.readFloat();
+            }
+            result.set(labelId, name, confidence);
+            file.setLastModified(System.currentTimeMillis()); // Marks it recently used for trim()
+            return new Entry(result, imageHash, modelHash);
+        } catch (IOException | RuntimeException e) {
+            Log.w("ClassificationCache", "Dropping unreadable entry " + key, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        // Written to a temporary file first so a crash never leaves a truncated entry under the key
+        File temporary = new File(directory, key + ".tmp");
+        ClassificationResult result = entry.result;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(result.getLabelId());
+            out.writeUTF(result.getName());
+            out.writeFloat(result.getConfidence());
+            out.writeBoolean(entry.imageHash != null);
+            if (entry.imageHash != null) {
+                out.writeLong(entry.imageHash);
+            }
+            float[] scores = result.getScores();
+            out.writeInt(scores.length);
+            for (float score : scores) {
+                out.writeFloat(score);
+            }
+        } catch (IOException e) {
+            Log.w("ClassificationCache", "Could not store " + key, e);
+            temporary.delete();
+            return;
+        }
+        if (!temporary.renameTo(new File(directory, key))) {
+            temporary.delete();
+            return;
+        }
+        trim();
+    }
+
+    private void trim() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - MAX_DISK_ENTRIES; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs the image model with buffers that are allocated once and reused for every call.
+// Each InferenceScheduler worker owns one engine, together with its Interpreter.
+// Float models get normalized floats; uint8/int8 models get pixel bytes mapped through their quantization params.
+public class ClassificationEngine {
+
+    private final Interpreter tflite;
+    private final AutoCloseable delegate; // Accelerator delegate, closed after the Interpreter
+    private final ModelSpec spec;
+    private final String[] labelNames;
+
+    // Pixel channel value (0..255) -> model input value, computed once per model instead of per pixel
+    private final PixelNormalizer normalizer;
+
+    private final int[] pixels;
+    private final float[] floatValues;
+    private final byte[] quantizedValues;
+    private final ByteBuffer inputBuffer;
+    private final FloatBuffer inputFloats;
+    private final ByteBuffer outputBuffer;
+    private final FloatBuffer outputFloats;
+    private final byte[] outputBytes;
+
+    // Reused argument holders so run() does not build new ones on every call
+    private final Object[] inputs;
+    private final Map<Integer, Object> outputs = new HashMap<>();
+
+    // Batched runs: the Interpreter's current batch dimension and buffers sized for it
+    private int batchSize = 1;
+    private boolean batchUnsupported;
+    private ByteBuffer batchInput;
+    private FloatBuffer batchInputFloats;
+    private ByteBuffer batchOutput;
+    private FloatBuffer batchOutputFloats;
+    private final Object[] batchInputs = new Object[1];
+    private final Map<Integer, Object> batchOutputs = new HashMap<>();
+
+    public ClassificationEngine(Interpreter tflite, List<String> labels) {
+        this(tflite, labels, null);
+    }
+
+    public ClassificationEngine(Interpreter tflite, List<String> labels, AutoCloseable delegate) {
+        if (tflite == null) {
+            throw new IllegalArgumentException("Interpreter not initialized.");
+        }
+        if (labels == null || labels.isEmpty()) {
+            throw new IllegalArgumentException("Labels not initialized.");
+        }
+        this.tflite = tflite;
+        this.delegate = delegate;
+        this.spec = ModelSpec.read(tflite);
+        if (spec.outputSize != labels.size()) {
+            throw new IllegalArgumentException("Model has " + spec.outputSize + " outputs but " + labels.size() + " labels");
+        }
+
+        labelNames = new String[labels.size()];
+        for (int i = 0; i < labelNames.length; i++) {
+            labelNames[i] = Labels.clean(labels.get(i));
+        }
+
+        int pixelCount = spec.inputWidth * spec.inputHeight;
+        pixels = new int[pixelCount];
+        inputBuffer = ByteBuffer.allocateDirect(spec.inputBytes()).order(ByteOrder.nativeOrder());
+        if (spec.inputType == DataType.FLOAT32) {
+            normalizer = PixelNormalizer.forFloat();
+            floatValues = new float[pixelCount * 3];
+            inputFloats = inputBuffer.asFloatBuffer();
+            quantizedValues = null;
+        } else {
+            normalizer = PixelNormalizer.forQuantized(spec.inputType == DataType.UINT8, spec.inputScale, spec.inputZeroPoint);
+            quantizedValues = new byte[pixelCount * 3];
+            floatValues = null;
+            inputFloats = null;
+        }
+
+        outputBuffer = ByteBuffer.allocateDirect(spec.outputBytes()).order(ByteOrder.nativeOrder());
+        if (spec.outputType == DataType.FLOAT32) {
+            outputFloats = outputBuffer.asFloatBuffer();
+            outputBytes = null;
+        } else {
+            outputFloats = null;
+            outputBytes = new byte[spec.outputSize];
+        }
+
+        inputs = new Object[]{inputBuffer};
+        outputs.put(0, outputBuffer);
+    }
+
+    // Convenience overload; use classify(Bitmap, ClassificationResult) on hot paths to avoid the result allocation
+    public ClassificationResult classify(Bitmap image) {
+        ClassificationResult result = new ClassificationResult();
+        classify(image, result);
+        return result;
+    }
+
+    // The bitmap must already be the model's input size
+    public void classify(Bitmap image, ClassificationResult result) {
+        ensureBatchSize(1);
+        long start = Metrics.start();
+        rewind(inputBuffer, inputFloats);
+        writeImage(image, inputBuffer, inputFloats);
+        Metrics.record(Metrics.Stage.PREPROCESS, start);
+        runSingle(result);
+    }
+
+    // For frames already converted to model-size ARGB pixels (see YuvConverter), skipping the Bitmap
+    public void classify(int[] argbPixels, ClassificationResult result) {
+        if (argbPixels.length != pixels.length) {
+            throw new IllegalArgumentException("Expected " + pixels.length + " pixels");
+        }
+        ensureBatchSize(1);
+        long start = Metrics.start();
+        rewind(inputBuffer, inputFloats);
+        writePixels(argbPixels, inputBuffer, inputFloats);
+        Metrics.record(Metrics.Stage.PREPROCESS, start);
+        runSingle(result);
+    }
+
+    private void runSingle(ClassificationResult result) {
+        inputBuffer.rewind();
+        outputBuffer.rewind();
+        long start = Metrics.start();
+        tflite.runForMultipleInputsOutputs(inputs, outputs);
+        Metrics.record(Metrics.Stage.INFERENCE, start);
+        Metrics.increment(Metrics.Counter.INTERPRETER_RUNS);
+        Metrics.increment(Metrics.Counter.IMAGES_CLASSIFIED);
+        rewind(outputBuffer, outputFloats);
+        readResult(outputBuffer, outputFloats, result);
+    }
+
+    // Classifies all images in one Interpreter call with a batch dimension of images.size().
+    // A batch smaller than the last one is padded instead of resizing the Interpreter again.
+    // Falls back to one call per image if the model or delegate cannot be resized.
+    public void classifyBatch(List<Bitmap> images, ClassificationResult[] results) {
+        int count = images.size();
+        if (count == 1 || batchUnsupported) {
+            for (int i = 0; i < count; i++) {
+                classify(images.get(i), results[i]);
+            }
+            return;
+        }
+        try {
+            if (count > batchSize || batchSize == 1) {
+                ensureBatchSize(count);
+            }
+        } catch (RuntimeException e) {
+            Log.w("ClassificationEngine", "Batched input not supported, classifying one by one", e);
+            batchUnsupported = true;
+            ensureBatchSize(1);
+            classifyBatch(images, results);
+            return;
+        }
+
+        long start = Metrics.start();
+        rewind(batchInput, batchInputFloats);
+        for (int i = 0; i < batchSize; i++) {
+            writeImage(images.get(Math.min(i, count - 1)), batchInput, batchInputFloats); // Padding repeats the last image
+        }
+        batchInput.rewind();
+        Metrics.record(Metrics.Stage.PREPROCESS, start);
+
+        batchOutput.rewind();
+        start = Metrics.start();
+        tflite.runForMultipleInputsOutputs(batchInputs, batchOutputs);
+        Metrics.record(Metrics.Stage.INFERENCE, start);
+        Metrics.increment(Metrics.Counter.INTERPRETER_RUNS);
+        Metrics.add(Metrics.Counter.IMAGES_CLASSIFIED, count);
+        rewind(batchOutput, batchOutputFloats);
+        for (int i = 0; i < count; i++) {
+            readResult(batchOutput, batchOutputFloats, results[i]);
+        }
+    }
+
+    // Resizes the Interpreter's batch dimension, reallocating tensors, and sizes the batch buffers to match
+    private void ensureBatchSize(int size) {
+        if (size == batchSize) {
+            return;
+        }
+        batchSize = 0; // Unknown until both calls succeed, so a failure here is retried next time
+        tflite.resizeInput(0, new int[]{size, spec.inputHeight, spec.inputWidth, spec.inputChannels});
+        tflite.allocateTensors();
+        batchSize = size;
+        if (size == 1) {
+            return;
+        }
+        batchInput = ByteBuffer.allocateDirect(size * spec.inputBytes()).order(ByteOrder.nativeOrder());
+        batchInputFloats = spec.inputType == DataType.FLOAT32 ? batchInput.asFloatBuffer() : null;
+        batchOutput = ByteBuffer.allocateDirect(size * spec.outputBytes()).order(ByteOrder.nativeOrder());
+        batchOutputFloats = spec.outputType == DataType.FLOAT32 ? batchOutput.asFloatBuffer() : null;
+        batchInputs[0] = batchInput;
+        batchOutputs.put(0, batchOutput);
+    }
+
+    private static void rewind(ByteBuffer buffer, FloatBuffer floats) {
+        buffer.rewind();
+        if (floats != null) {
+            floats.rewind();
+        }
+    }
+
+    // Appends one image's model input at the buffer's position (or the float view's, for float models)
+    private void writeImage(Bitmap image, ByteBuffer buffer, FloatBuffer floats) {
+        int width = spec.inputWidth;
+        int height = spec.inputHeight;
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("Expected a " + width + "x" + height + " bitmap");
+        }
+        image.getPixels(pixels, 0, width, 0, 0, width, height);
+        writePixels(pixels, buffer, floats);
+    }
+
+    private void writePixels(int[] source, ByteBuffer buffer, FloatBuffer floats) {
+        if (floatValues != null) {
+            normalizer.normalize(source, floatValues);
+            floats.put(floatValues); // One bulk copy into the direct buffer
+        } else {
+            normalizer.quantize(source, quantizedValues);
+            buffer.put(quantizedValues);
+        }
+    }
+
+    // Reads the next image's scores from the output, dequantizing if needed, and picks the top label
+    private void readResult(ByteBuffer output, FloatBuffer outputFloatView, ClassificationResult result) {
+        float[] confidences = result.scoresBuffer(labelNames.length);
+        if (outputFloatView != null) {
+            outputFloatView.get(confidences);
+        } else {
+            output.get(outputBytes);
+            Scores.dequantize(outputBytes, spec.outputType == DataType.UINT8, spec.outputScale, spec.outputZeroPoint, confidences);
+        }
+
+        int maxPos = Scores.argmax(confidences);
+        result.set(maxPos, labelNames[maxPos], confidences[maxPos]);
+    }
+
+    public ModelSpec getSpec() {
+        return spec;
+    }
+
+    public void close() {
+        tflite.close();
+        InterpreterConfig.closeQuietly(delegate);
+    }
+
+    public int getLabelCount() {
+        return labelNames.length;
+    }
+
+    public String getLabelName(int labelId) {
+        return labelNames[labelId];
+    }
+}
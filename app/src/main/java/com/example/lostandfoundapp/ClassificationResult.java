@@ -0,0 +1,39 @@
+package com.example.lostandfoundapp;
+
+public class ClassificationResult {
+    private int labelId = -1;
+    private String name;
+    private float confidence;
+    private float[] scores; // Full output vector, reused between calls with the same result
+
+    public int getLabelId() {
+        return labelId;
+    }
+
+    // Class name without the leading number, e.g. "mobile phone"
+    public String getName() {
+        return name;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    // Confidence of every label; also serves as the item's embedding for similarity search
+    public float[] getScores() {
+        return scores;
+    }
+
+    float[] scoresBuffer(int length) {
+        if (scores == null || scores.length != length) {
+            scores = new float[length];
+        }
+        return scores;
+    }
+
+    void set(int labelId, String name, float confidence) {
+        this.labelId = labelId;
+        this.name = name;
+        this.confidence = confidence;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.lostandfoundapp;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.core.content.ContextCompat;
+
+// The device's position for tagging and searching items. A recent fix from any provider is used as is;
+// otherwise one update is requested, giving up after TIMEOUT_MS. Callbacks run on the main thread.
+public class CurrentLocation {
+
+    private static final long MAX_AGE_MS = 2 * 60 * 1000;
+    private static final long TIMEOUT_MS = 15 * 1000;
+    private static final String[] PROVIDERS = {LocationManager.GPS_PROVIDER, LocationManager.NETWORK_PROVIDER};
+
+    public interface Callback {
+        void onLocation(Location location);
+
+        void onUnavailable();
+    }
+
+    public static final String[] PERMISSIONS = {
+            Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION
+    };
+
+    private CurrentLocation() {
+    }
+
+    public static boolean hasPermission(Context context) {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @SuppressLint("MissingPermission") // Checked by hasPermission() first
+    public static void get(Context context, Callback callback) {
+        LocationManager manager = (LocationManager) context.getApplicationContext().getSystemService(Context.LOCATION_SERVICE);
+        if (manager == null || !hasPermission(context)) {
+            callback.onUnavailable();
+            return;
+        }
+
+        Location newest = null;
+        String enabledProvider = null;
+        for (String provider : PROVIDERS) {
+            if (!manager.isProviderEnabled(provider)) {
+                continue;
+            }
+            if (enabledProvider == null) {
+                enabledProvider = provider;
+            }
+            Location last = manager.getLastKnownLocation(provider);
+            if (last != null && (newest == null || last.getTime() > newest.getTime())) {
+                newest = last;
+            }
+        }
+        if (newest != null && System.currentTimeMillis() - newest.getTime() <= MAX_AGE_MS) {
+            callback.onLocation(newest);
+            return;
+        }
+        if (enabledProvider == null) {
+            callback.onUnavailable();
+            return;
+        }
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        boolean[] done = new boolean[1];
+        LocationListener listener = new LocationListener() {
+            @Override
+            public void onLocationChanged(Location location) {
+                if (!done[0]) {
+                    done[0] = true;
+                    handler.removeCallbacksAndMessages(null);
+                    callback.onLocation(location);
+                }
+            }
+
+            @Override
+            public void onStatusChanged(String provider, int status, Bundle extras) {
+            }
+
+            @Override
+            public void onProviderEnabled(String provider) {
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {
+            }
+        };
+        manager.requestSingleUpdate(enabledProvider, listener, Looper.getMainLooper());
+        Location stale = newest;
+        handler.postDelayed(() -> {
+            if (!done[0]) {
+                done[0] = true;
+                manager.removeUpdates(listener);
+                // An old fix beats none; staff rarely carry the phone far between reports
+                if (stale != null) {
+                    callback.onLocation(stale);
+                } else {
+                    callback.onUnavailable();
+                }
+            }
+        }, TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.net.Uri;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+// The re-encoded copies of a photo that get uploaded instead of the original:
+// a size-capped display image and a small square thumbnail for the result list.
+// Both are encoded from pixels, so the original EXIF data (location, device) is not carried over.
+public class ImageDerivatives {
+
+    static final int DISPLAY_MAX_SIDE = 1280;
+    static final int THUMBNAIL_SIZE = 240; // 80dp list rows at up to xxhdpi
+    private static final int DISPLAY_TARGET_BYTES = 200 * 1024;
+    private static final int THUMBNAIL_TARGET_BYTES = 16 * 1024;
+    private static final int MAX_QUALITY = 85;
+    private static final int MIN_QUALITY = 45;
+
+    static final String CONTENT_TYPE = "image/webp";
+    static final String DISPLAY_FILE = "display.webp";
+    static final String THUMBNAIL_FILE = "thumb.webp";
+
+    private final byte[] display;
+    private final byte[] thumbnail;
+
+    private ImageDerivatives(byte[] display, byte[] thumbnail) {
+        this.display = display;
+        this.thumbnail = thumbnail;
+    }
+
+    public byte[] getDisplay() {
+        return display;
+    }
+
+    public byte[] getThumbnail() {
+        return thumbnail;
+    }
+
+    // Slow: decodes and encodes. Call off the main thread.
+    public static ImageDerivatives create(BitmapDecoder decoder, BitmapPool pool, Uri uri) throws IOException {
+        Bitmap displayBitmap = decoder.decodeFitted(uri, DISPLAY_MAX_SIDE);
+        Bitmap thumbnailBitmap = null;
+        try {
+            thumbnailBitmap = centerCrop(displayBitmap, THUMBNAIL_SIZE, pool);
+            return new ImageDerivatives(
+                    encode(displayBitmap, DISPLAY_TARGET_BYTES),
+                    encode(thumbnailBitmap, THUMBNAIL_TARGET_BYTES));
+        } finally {
+            pool.put(displayBitmap);
+            if (thumbnailBitmap != null) {
+                pool.put(thumbnailBitmap);
+            }
+        }
+    }
+
+    // Scales the shorter side to size and keeps the middle, matching the list's centerCrop
+    private static Bitmap centerCrop(Bitmap source, int size, BitmapPool pool) {
+        float scale = size / (float) Math.min(source.getWidth(), source.getHeight());
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((size - source.getWidth() * scale) / 2f, (size - source.getHeight() * scale) / 2f);
+
+        Bitmap cropped = pool.get(size, size, Bitmap.Config.ARGB_8888);
+        new Canvas(cropped).drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+        return cropped;
+    }
+
+    // Highest quality step that fits targetBytes, or the lowest step if none does
+    private static byte[] encode(Bitmap bitmap, int targetBytes) {
+        long start = Metrics.start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(targetBytes);
+        for (int quality = MAX_QUALITY; ; quality -= 10) {
+            out.reset();
+            bitmap.compress(format(), quality, out);
+            if (out.size() <= targetBytes || quality - 10 < MIN_QUALITY) {
+                Metrics.record(Metrics.Stage.ENCODE, start);
+                return out.toByteArray();
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat format() {
+        // Before Android 11 WEBP is lossy for any quality below 100
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs model inference off the main thread on a small pool of workers.
+// Every worker owns its own Interpreter, so no Interpreter is ever used by two threads at once.
+// One scheduler serves one model; when ModelManager swaps models the old scheduler is retired, finishing
+// the jobs it already has before closing its Interpreters, and rejects new ones.
+public class InferenceScheduler {
+
+    // Lower value runs first
+    public static final int PRIORITY_INTERACTIVE = 0; // Search-by-image, the user is waiting on it
+    public static final int PRIORITY_BACKGROUND = 1;  // Labeling before an upload
+
+    private static final int WARM_UP_TIMEOUT_SECONDS = 10;
+
+    public interface EngineTask<T> {
+        T run(ClassificationEngine engine) throws Exception;
+    }
+
+    // Both methods are called on the main thread, and never for a cancelled job
+    public interface Callback<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    private final ByteBuffer model;
+    private final String modelHash;
+    private final List<String> labels;
+    private final InterpreterConfig config;
+    private final ModelSpec modelSpec;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<ClassificationEngine> allEngines = new ArrayList<>();
+    private final ThreadLocal<ClassificationEngine> workerEngine = new ThreadLocal<ClassificationEngine>() {
+        @Override
+        protected ClassificationEngine initialValue() {
+            ClassificationEngine engine = newEngine();
+            synchronized (allEngines) {
+                allEngines.add(engine);
+            }
+            return engine;
+        }
+    };
+
+    // Throws IllegalArgumentException if the model can't be read or doesn't have one output per label
+    public InferenceScheduler(ByteBuffer model, String modelHash, List<String> labels, InterpreterConfig config, int workers) {
+        this.model = model;
+        this.modelHash = modelHash;
+        this.labels = labels;
+        this.config = config;
+        // Read the tensor layout once so callers know what size to decode images to
+        Interpreter probe = new Interpreter(model);
+        try {
+            this.modelSpec = ModelSpec.read(probe);
+        } finally {
+            probe.close();
+        }
+        if (modelSpec.getOutputSize() != labels.size()) {
+            throw new IllegalArgumentException("Model has " + modelSpec.getOutputSize() + " outputs but "
+                    + labels.size() + " labels");
+        }
+        Log.d("InferenceScheduler", "Model " + modelSpec);
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new WorkerThreadFactory()) {
+            @Override
+            protected void terminated() {
+                closeEngines(); // Every worker has exited, none can be using its Interpreter
+            }
+        };
+    }
+
+    private ClassificationEngine newEngine() {
+        try {
+            return config.newEngine(model, labels);
+        } catch (RuntimeException | Error e) {
+            // The tuned delegate stopped working (e.g. after a driver update), fall back to the CPU
+            Log.w("InferenceScheduler", "Falling back to default config, " + config + " failed", e);
+            return InterpreterConfig.DEFAULT.newEngine(model, labels);
+        }
+    }
+
+    // Leave a core for the UI thread, and do not hold more than two interpreters in memory
+    public static int defaultWorkerCount() {
+        return Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    // Builds every worker's Interpreter and runs one inference on each, so the first real job does not pay
+    // for delegate setup and first-run allocation. Blocks until done; call off the main thread.
+    public void warmUp() throws InterruptedException {
+        int workers = executor.getCorePoolSize();
+        Bitmap input = InterpreterTuner.syntheticInput(modelSpec);
+        CountDownLatch started = new CountDownLatch(workers);
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<InferenceJob<Void>> jobs = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            jobs.add(submit(PRIORITY_BACKGROUND, engine -> {
+                // Hold this worker until every warm-up job has one, so each lands on a different worker
+                started.countDown();
+                started.await(WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (!abandoned.get()) {
+                    engine.classify(input, new ClassificationResult());
+                }
+                return null;
+            }, null));
+        }
+        try {
+            for (InferenceJob<Void> job : jobs) {
+                job.get();
+            }
+        } catch (ExecutionException e) {
+            // The other jobs may still be waiting or classifying, so stop them and let every one finish
+            // before the input they share is recycled
+            abandon(started, abandoned);
+            for (InferenceJob<Void> job : jobs) {
+                awaitQuietly(job);
+            }
+            input.recycle();
+            throw new IllegalStateException("Model warm-up failed", e.getCause());
+        } catch (InterruptedException e) {
+            abandon(started, abandoned); // Jobs may still be using the input, so it is left to the garbage collector
+            throw e;
+        }
+        input.recycle();
+    }
+
+    private static void abandon(CountDownLatch started, AtomicBoolean abandoned) {
+        abandoned.set(true);
+        while (started.getCount() > 0) {
+            started.countDown(); // Releases jobs held for the others
+        }
+    }
+
+    // Waits for the job to have run, whatever its outcome
+    private static void awaitQuietly(InferenceJob<?> job) throws InterruptedException {
+        try {
+            job.get();
+        } catch (ExecutionException ignored) {
+            // Only the first failure is reported
+        }
+    }
+
+    public ModelSpec getModelSpec() {
+        return modelSpec;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    // Hex SHA-256 of the model this scheduler runs
+    public String getModelHash() {
+        return modelHash;
+    }
+
+    public InferenceJob<ClassificationResult> classify(int priority, Bitmap image, Callback<ClassificationResult> callback) {
+        return submit(priority, engine -> engine.classify(image), callback);
+    }
+
+    // Live camera frames already converted to model-size pixels. The caller reuses argbPixels and result
+    // for every frame, so it must not submit another frame until this one's callback has run.
+    public InferenceJob<ClassificationResult> classifyPixels(int priority, int[] argbPixels, ClassificationResult result,
+                                                             Callback<ClassificationResult> callback) {
+        return submit(priority, engine -> {
+            engine.classify(argbPixels, result);
+            return result;
+        }, callback);
+    }
+
+    // All images go through the model in one batched call on a single worker
+    public InferenceJob<ClassificationResult[]> classifyBatch(int priority, List<Bitmap> images,
+                                                              Callback<ClassificationResult[]> callback) {
+        return submit(priority, engine -> {
+            ClassificationResult[] results = new ClassificationResult[images.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = new ClassificationResult();
+            }
+            engine.classifyBatch(images, results);
+            return results;
+        }, callback);
+    }
+
+    public <T> InferenceJob<T> submit(int priority, EngineTask<T> task, Callback<T> callback) {
+        InferenceJob<T> job = new InferenceJob<>(priority, sequence.getAndIncrement(),
+                () -> task.run(workerEngine.get()), callback);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            // Retired by a model swap; the callback's onError tells the caller to use the new scheduler
+            job.reject(new IllegalStateException("Model was replaced", e));
+        }
+        return job;
+    }
+
+    // Stops taking jobs. Queued and running jobs still finish on this model, then its Interpreters are closed.
+    public void retire() {
+        executor.shutdown();
+    }
+
+    public boolean isRetired() {
+        return executor.isShutdown();
+    }
+
+    // No job queued or running, as far as the executor can tell
+    public boolean isIdle() {
+        return executor.getQueue().isEmpty() && executor.getActiveCount() == 0;
+    }
+
+    // Drops queued jobs and interrupts running ones. A running inference can't be interrupted, so the
+    // Interpreters are closed by terminated() once it returns rather than here, under a live worker.
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void closeEngines() {
+        synchronized (allEngines) {
+            for (ClassificationEngine engine : allEngines) {
+                engine.close();
+            }
+            allEngines.clear();
+        }
+    }
+
+    public class InferenceJob<T> extends FutureTask<T> implements Comparable<InferenceJob<?>> {
+        private final int priority;
+        private final long order;
+        private final Callback<T> callback;
+        private volatile boolean cancelled; // Also set when the job had already finished
+
+        InferenceJob(int priority, long order, Callable<T> callable, Callback<T> callback) {
+            super(callable);
+            this.priority = priority;
+            this.order = order;
+            this.callback = callback;
+        }
+
+        @Override
+        public int compareTo(InferenceJob<?> other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return Long.compare(order, other.order); // FIFO within a priority
+        }
+
+        void reject(Exception e) {
+            setException(e);
+        }
+
+        // Cancelled jobs still waiting in the queue are skipped when a worker reaches them
+        public void cancel() {
+            cancelled = true;
+            cancel(false);
+        }
+
+        @Override
+        protected void done() {
+            if (callback == null || cancelled || isCancelled()) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (cancelled) {
+                    return; // Cancelled after the result was produced but before delivery
+                }
+                try {
+                    callback.onResult(get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    Log.e("InferenceScheduler", "Inference failed", cause);
+                    callback.onError(cause instanceof Exception ? (Exception) cause : e);
+                } catch (InterruptedException e) {
+                    callback.onError(e);
+                }
+            });
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(() -> {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "inference-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.lostandfoundapp;
+
+import org.tensorflow.lite.Delegate;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.gpu.GpuDelegate;
+import org.tensorflow.lite.nnapi.NnApiDelegate;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// One way of running the model: thread count, XNNPACK and which accelerator delegate, if any
+public class InterpreterConfig {
+
+    public enum Backend { CPU, NNAPI, GPU }
+
+    public static final InterpreterConfig DEFAULT = new InterpreterConfig(Backend.CPU, 2, true);
+
+    final Backend backend;
+    final int threads;
+    final boolean useXnnpack;
+
+    public InterpreterConfig(Backend backend, int threads, boolean useXnnpack) {
+        this.backend = backend;
+        this.threads = threads;
+        this.useXnnpack = useXnnpack;
+    }
+
+    // Builds an Interpreter with this config and wraps it in an engine that also owns the delegate
+    public ClassificationEngine newEngine(ByteBuffer model, List<String> labels) {
+        Interpreter.Options options = new Interpreter.Options()
+                .setNumThreads(threads)
+                .setUseXNNPACK(useXnnpack);
+
+        AutoCloseable delegate = null;
+        Interpreter interpreter = null;
+        try {
+            if (backend == Backend.GPU) {
+                GpuDelegate gpuDelegate = new GpuDelegate();
+                delegate = gpuDelegate;
+                options.addDelegate(gpuDelegate);
+            } else if (backend == Backend.NNAPI) {
+                NnApiDelegate nnApiDelegate = new NnApiDelegate();
+                delegate = nnApiDelegate;
+                options.addDelegate(nnApiDelegate);
+            }
+            interpreter = new Interpreter(model, options);
+            return new ClassificationEngine(interpreter, labels, delegate);
+        } catch (RuntimeException | Error e) {
+            if (interpreter != null) {
+                interpreter.close();
+            }
+            closeQuietly(delegate);
+            throw e;
+        }
+    }
+
+    static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing useful to do if a delegate fails to release
+        }
+    }
+
+    // Stored as "backend:threads:xnnpack"
+    String encode() {
+        return backend.name() + ":" + threads + ":" + useXnnpack;
+    }
+
+    static InterpreterConfig decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(":");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new InterpreterConfig(Backend.valueOf(parts[0]), Integer.parseInt(parts[1]), Boolean.parseBoolean(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null; // Written by an older version, tune again
+        }
+    }
+
+    @Override
+    public String toString() {
+        return backend + ", " + threads + " thread(s), XNNPACK " + (useXnnpack ? "on" : "off");
+    }
+}
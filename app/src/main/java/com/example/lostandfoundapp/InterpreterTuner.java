@@ -0,0 +1,198 @@
+package com.example.lostandfoundapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Picks the fastest InterpreterConfig for this device and model by timing a few candidates on synthetic input.
+// The winner is stored per device and model hash, so tuning only runs again when the model changes.
+// Each candidate runs one engine per scheduler worker at once, matching how the model is used in production.
+public class InterpreterTuner {
+
+    private static final String PREFS_NAME = "interpreter_tuning";
+    private static final int WARM_UP_RUNS = 2;
+    private static final int TIMED_RUNS = 5;
+    // Same priority as the scheduler's workers, so candidates are timed as they would run
+    private static final ThreadFactory BENCHMARK_THREADS = r -> {
+        Thread thread = new Thread(() -> {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "interpreter-benchmark");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final SharedPreferences prefs;
+
+    public InterpreterTuner(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // The stored choice for this model on this device, or null if it has not been tuned yet
+    public InterpreterConfig loadStored(String modelHash) {
+        return InterpreterConfig.decode(prefs.getString(prefsKey(modelHash), null));
+    }
+
+    public interface Pacer {
+        // Blocks until the next candidate may be timed; false stops tuning without storing a result
+        boolean awaitTurn() throws InterruptedException;
+    }
+
+    // Slow: builds and times every candidate. Call on a background thread. Returns null if the pacer stopped it.
+    public InterpreterConfig tune(String modelHash, ByteBuffer model, List<String> labels, int workers, Pacer pacer)
+            throws InterruptedException {
+        InterpreterConfig best = InterpreterConfig.DEFAULT;
+        long bestNanos = Long.MAX_VALUE;
+        for (InterpreterConfig candidate : candidates()) {
+            if (!pacer.awaitTurn()) {
+                Log.d("InterpreterTuner", "Tuning stopped");
+                return null;
+            }
+            long nanos = benchmark(candidate, model, labels, workers);
+            Log.d("InterpreterTuner", candidate + ": " + (nanos == Long.MAX_VALUE ? "unavailable" : nanos / 1000 + " us"));
+            if (nanos < bestNanos) {
+                bestNanos = nanos;
+                best = candidate;
+            }
+        }
+        Log.i("InterpreterTuner", "Using " + best);
+        prefs.edit().putString(prefsKey(modelHash), best.encode()).apply();
+        return best;
+    }
+
+    private static List<InterpreterConfig> candidates() {
+        List<InterpreterConfig> candidates = new ArrayList<>();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.min(4, cores); threads *= 2) {
+            candidates.add(new InterpreterConfig(InterpreterConfig.Backend.CPU, threads, true));
+            candidates.add(new InterpreterConfig(InterpreterConfig.Backend.CPU, threads, false));
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // NNAPI before Android 9 is often slower than the CPU path, or falls back to it
+            candidates.add(new InterpreterConfig(InterpreterConfig.Backend.NNAPI, 1, false));
+        }
+        candidates.add(new InterpreterConfig(InterpreterConfig.Backend.GPU, 1, false));
+        return candidates;
+    }
+
+    // Median time per inference with one engine per worker classifying at once, as the scheduler runs them,
+    // so a thread count that oversubscribes the cores loses. Long.MAX_VALUE if the config can't run here.
+    private static long benchmark(InterpreterConfig config, ByteBuffer model, List<String> labels, int workers)
+            throws InterruptedException {
+        List<ClassificationEngine> engines = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, BENCHMARK_THREADS);
+        Bitmap input = null;
+        try {
+            for (int i = 0; i < workers; i++) {
+                engines.add(config.newEngine(model, labels));
+            }
+            input = syntheticInput(engines.get(0).getSpec());
+            runOnAll(pool, engines, input, WARM_UP_RUNS);
+            long[] times = new long[TIMED_RUNS];
+            for (int i = 0; i < TIMED_RUNS; i++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                runOnAll(pool, engines, input, 1);
+                times[i] = (SystemClock.elapsedRealtimeNanos() - start) / workers;
+            }
+            Arrays.sort(times);
+            return times[TIMED_RUNS / 2];
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error && !(cause instanceof LinkageError)) {
+                throw (Error) cause; // Running out of memory says nothing about the candidate
+            }
+            Log.w("InterpreterTuner", config + " failed", cause);
+            return Long.MAX_VALUE;
+        } catch (RuntimeException | LinkageError e) {
+            // Missing delegate, unsupported ops or a driver failure: skip this candidate
+            Log.w("InterpreterTuner", config + " failed", e);
+            return Long.MAX_VALUE;
+        } finally {
+            // No engine is closed, nor the input recycled, while a benchmark thread may still be using it
+            pool.shutdown();
+            awaitUninterruptibly(pool);
+            for (ClassificationEngine engine : engines) {
+                engine.close();
+            }
+            if (input != null) {
+                input.recycle();
+            }
+        }
+    }
+
+    // Every engine classifies input runs times on its own thread; waits for all of them even if one fails
+    private static void runOnAll(ExecutorService pool, List<ClassificationEngine> engines, Bitmap input, int runs)
+            throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (ClassificationEngine engine : engines) {
+            futures.add(pool.submit(() -> {
+                ClassificationResult result = new ClassificationResult();
+                for (int i = 0; i < runs; i++) {
+                    engine.classify(input, result);
+                }
+                return null;
+            }));
+        }
+        ExecutionException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void awaitUninterruptibly(ExecutorService pool) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Bitmap syntheticInput(ModelSpec spec) {
+        int[] pixels = new int[spec.getInputWidth() * spec.getInputHeight()];
+        Random random = new Random(42);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return Bitmap.createBitmap(pixels, spec.getInputWidth(), spec.getInputHeight(), Bitmap.Config.ARGB_8888);
+    }
+
+    // Hex SHA-256 of the model bytes
+    public static String hashModel(ByteBuffer model) {
+        return ContentHash.sha256(model);
+    }
+
+    private static String prefsKey(String modelHash) {
+        // Backups can restore these prefs onto another device, so the device build is part of the key
+        return modelHash + "|" + Build.FINGERPRINT;
+    }
+}
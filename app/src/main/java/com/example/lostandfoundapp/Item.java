@@ -1,14 +1,37 @@
 package com.example.lostandfoundapp;
 
+import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Exclude;
+
+import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 public class Item {
+    @DocumentId
+    private String id;  // Filled in by Firestore from the document id
     private String name;
     private String category;
-    private String imageUrl;
+    private String imageUrl;  // Size-capped display image
+    private String thumbnailUrl;  // Small square image for the result list
     private Date dateAdded;
     private List<String> labels;  // Ensure this field is present
+    private List<Float> embedding;  // Model output vector, used for search-by-image
+    private String imageHash;  // 64-bit perceptual hash of the photo as hex, for duplicate detection
+    private Double latitude;  // Where the item was found; all three location fields are null when unknown
+    private Double longitude;
+    private String geohash;  // GeoHash of latitude and longitude, range-queried by proximity search
+    private String displayDate;  // Formatted once for the result list, not stored in Firestore
+
+    // DateFormat isn't thread-safe, and items are read on several background threads
+    private static final ThreadLocal<DateFormat> DISPLAY_DATE_FORMAT = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+        }
+    };
 
     public Item() {
         // No-arg constructor required for Firestore
@@ -23,6 +46,14 @@ public class Item {
     }
 
     // Getters and Setters for all fields, including labels
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -47,6 +78,14 @@ public class Item {
         this.imageUrl = imageUrl;
     }
 
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public Date getDateAdded() {
         return dateAdded;
     }
@@ -55,6 +94,25 @@ public class Item {
         this.dateAdded = dateAdded;
     }
 
+    // The date as shown in the result list; empty until formatForDisplay has run
+    @Exclude
+    public String getDisplayDate() {
+        return displayDate != null ? displayDate : "";
+    }
+
+    // Computes the display fields once, where the item is read, so binding a row only reads them
+    @Exclude
+    public void formatForDisplay() {
+        displayDate = dateAdded != null ? DISPLAY_DATE_FORMAT.get().format(dateAdded) : "";
+    }
+
+    // A query result with its display fields computed. Call off the main thread.
+    static Item read(DocumentSnapshot document) {
+        Item item = document.toObject(Item.class);
+        item.formatForDisplay();
+        return item;
+    }
+
     public List<String> getLabels() {
         return labels;
     }
@@ -62,5 +120,96 @@ public class Item {
     public void setLabels(List<String> labels) {
         this.labels = labels;
     }
-}
 
+    public List<Float> getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(List<Float> embedding) {
+        this.embedding = embedding;
+    }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    // Sets all three location fields together so the geohash always matches the coordinates
+    @Exclude
+    public void setLocation(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.geohash = GeoHash.encode(latitude, longitude, GeoHash.STORED_PRECISION);
+    }
+
+    @Exclude
+    public boolean hasLocation() {
+        return latitude != null && longitude != null;
+    }
+
+    @Exclude
+    public float[] getEmbeddingArray() {
+        if (embedding == null) {
+            return null;
+        }
+        float[] values = new float[embedding.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = embedding.get(i);
+        }
+        return values;
+    }
+
+    @Exclude
+    public void setEmbeddingArray(float[] values) {
+        List<Float> list = new ArrayList<>(values.length);
+        for (float value : values) {
+            list.add(value);
+        }
+        this.embedding = list;
+    }
+
+    // Two Items are the same report if they come from the same document
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Item)) {
+            return false;
+        }
+        Item other = (Item) o;
+        return id != null && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.lostandfoundapp;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,20 +9,73 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder> {
+// Lists are diffed on a background thread by ListAdapter, so a new search or page only
+// inserts, moves or rebinds the rows that actually changed.
+// Thumbnails are decoded at the ImageView's size in RGB_565, half the memory of ARGB_8888, and the
+// preloader from createPreloader fetches the same requests a few rows ahead of the scroll.
+public class ItemAdapter extends ListAdapter<Item, ItemAdapter.ItemViewHolder>
+        implements ListPreloader.PreloadModelProvider<Item> {
 
-    private List<Item> itemList;
-    private Context context;
+    private static final DiffUtil.ItemCallback<Item> DIFF_CALLBACK = new DiffUtil.ItemCallback<Item>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem == newItem || oldItem.equals(newItem); // Same document id
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return equal(oldItem.getName(), newItem.getName())
+                    && equal(oldItem.getCategory(), newItem.getCategory())
+                    && equal(oldItem.getImageUrl(), newItem.getImageUrl())
+                    && equal(oldItem.getThumbnailUrl(), newItem.getThumbnailUrl())
+                    && equal(oldItem.getDateAdded(), newItem.getDateAdded());
+        }
+    };
+
+    private final Context context;
+    private final int thumbnailSize;
+    // Preloads only hit the memory cache if they match the bound request exactly, so both use these
+    private final RequestOptions thumbnailOptions;
+    // Document id to RecyclerView item id; ids are never reused so they stay stable across lists
+    private final Map<String, Long> stableIds = new HashMap<>();
 
-    public ItemAdapter(List<Item> itemList, Context context) {
-        this.itemList = itemList;
+    public ItemAdapter(Context context) {
+        super(DIFF_CALLBACK);
         this.context = context;
+        thumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.item_thumbnail_size);
+        thumbnailOptions = new RequestOptions()
+                .override(thumbnailSize)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565);
+        setHasStableIds(true);
+    }
+
+    // Add to the RecyclerView as a scroll listener
+    public RecyclerViewPreloader<Item> createPreloader(int rowsAhead) {
+        return new RecyclerViewPreloader<>(Glide.with(context), this,
+                new FixedPreloadSizeProvider<>(thumbnailSize, thumbnailSize), rowsAhead);
     }
 
     @NonNull
@@ -33,25 +87,84 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull ItemViewHolder holder, int position) {
-        Item item = itemList.get(position);
+        Item item = getItem(position);
         holder.itemName.setText(item.getName());
         holder.itemCategory.setText(item.getCategory());
-        holder.itemDateAdded.setText(item.getDateAdded().toString());
+        holder.itemDateAdded.setText(item.getDisplayDate());
 
-        // Load the image using Glide
-        Glide.with(context)
-                .load(item.getImageUrl()) // The URL for the image
+        thumbnailRequest(item)
+                .listener(new LoadTimer())
                 .into(holder.itemImage); // The ImageView where the image will be loaded
     }
 
+    // Releases the row's bitmap to the pool as soon as the row scrolls away
     @Override
-    public int getItemCount() {
-        return itemList.size();
+    public void onViewRecycled(@NonNull ItemViewHolder holder) {
+        Glide.with(context).clear(holder.itemImage);
     }
 
+    @NonNull
+    @Override
+    public List<Item> getPreloadItems(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(getItem(position));
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Item item) {
+        return thumbnailRequest(item);
+    }
+
+    private RequestBuilder<Drawable> thumbnailRequest(Item item) {
+        // Items saved before thumbnails existed only have the full image
+        String url = item.getThumbnailUrl() != null ? item.getThumbnailUrl() : item.getImageUrl();
+        return Glide.with(context).load(url).apply(thumbnailOptions);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Item item = getItem(position);
+        if (item.getId() == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long id = stableIds.get(item.getId());
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(item.getId(), id);
+        }
+        return id;
+    }
+
+    // Diffs against the current list in the background; the list must not be modified afterwards
     public void setItemList(List<Item> itemList) {
-        this.itemList = itemList;
-        notifyDataSetChanged(); // Refresh the RecyclerView
+        submitList(itemList);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Records how long each row's image took, from bind to display
+    private static class LoadTimer implements RequestListener<Drawable> {
+        private final long start = Metrics.start();
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+            Metrics.increment(Metrics.Counter.IMAGE_LOAD_FAILURES);
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
+            Metrics.record(Metrics.Stage.IMAGE_LOAD, start);
+            if (dataSource == DataSource.MEMORY_CACHE) {
+                Metrics.increment(Metrics.Counter.IMAGE_MEMORY_HITS);
+            }
+            return false; // Let Glide set the image
+        }
     }
 
     public static class ItemViewHolder extends RecyclerView.ViewHolder {
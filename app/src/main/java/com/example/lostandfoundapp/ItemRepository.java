@@ -0,0 +1,468 @@
+package com.example.lostandfoundapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Local copy of the items collection with the on-device search indexes built over it.
+// The copy is saved to a file, so a start only reads the items added since it was saved, through a snapshot
+// listener that then keeps following new and changed items at one read each. The whole collection is read
+// again only when there is no usable file or it is older than FULL_SYNC_INTERVAL_MS, which is also how
+// edits and deletions of older items eventually arrive. Items are kept without their embedding; the
+// EmbeddingIndex holds the only, int8, copy of it.
+public class ItemRepository {
+
+    public interface LoadCallback {
+        void onLoaded();
+
+        void onError(Exception e);
+    }
+
+    private static final int LOAD_PAGE_SIZE = 500;
+    private static final long FULL_SYNC_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    private static final long SAVE_DELAY_MS = 30 * 1000; // Changes arriving together are saved together
+    // The listener starts this far before the newest known item, so items from a device whose clock runs behind
+    // aren't missed. Items seen twice are simply indexed again.
+    private static final long CLOCK_SKEW_MS = 5 * 60 * 1000;
+    private static final int FORMAT_VERSION = 1;
+
+    private final FirebaseFirestore db;
+    private final File snapshotFile;
+    private EmbeddingIndex embeddingIndex; // Created with the size of the first embedding seen, guarded by itemsById
+    private final TrigramIndex textIndex = new TrigramIndex();
+    private final BkTree imageHashIndex = new BkTree();
+    private final Map<String, Item> itemsById = new HashMap<>();
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    // Touched only on the index thread
+    private long fullSyncAt; // When the whole collection was last read
+    private long newestDateAdded;
+
+    // Touched only on the main thread
+    private boolean loaded;
+    private boolean loading;
+    private boolean loadOnFirstChanges; // Restored from the file, loaded once the missed items are in
+    private final List<LoadCallback> pendingCallbacks = new ArrayList<>();
+    private ListenerRegistration changesRegistration;
+
+    public ItemRepository(FirebaseFirestore db, File snapshotFile) {
+        this.db = db;
+        this.snapshotFile = snapshotFile;
+    }
+
+    // Main thread only
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Call on the main thread; the callback also runs on the main thread
+    public void ensureLoaded(LoadCallback callback) {
+        if (loaded) {
+            callback.onLoaded();
+            return;
+        }
+        pendingCallbacks.add(callback);
+        if (loading) {
+            return;
+        }
+        loading = true;
+        // Deserialize and index on a background thread, the collection can be large
+        indexExecutor.execute(() -> {
+            long now = System.currentTimeMillis();
+            if (restore(now)) {
+                long since = newestDateAdded - CLOCK_SKEW_MS;
+                mainHandler.post(() -> {
+                    loadOnFirstChanges = true;
+                    listenForChanges(since);
+                });
+            } else {
+                fullSyncAt = now;
+                loadNextPage(null);
+            }
+        });
+    }
+
+    // Reads in pages ordered by document id, so every item is included and only one page is held at a time
+    private void loadNextPage(DocumentSnapshot after) {
+        Query page = db.collection("items").orderBy(FieldPath.documentId()).limit(LOAD_PAGE_SIZE);
+        if (after != null) {
+            page = page.startAfter(after);
+        }
+        long start = Metrics.start();
+        page.get().addOnCompleteListener(indexExecutor, task -> {
+            if (!task.isSuccessful()) {
+                mainHandler.post(() -> finishLoading(task.getException()));
+                return;
+            }
+            Metrics.record(Metrics.Stage.FIRESTORE_QUERY, start);
+            QuerySnapshot snapshot = task.getResult();
+            for (Item item : PagedQuery.readItems(snapshot)) {
+                addToIndexes(item);
+            }
+            List<DocumentSnapshot> documents = snapshot.getDocuments();
+            if (documents.size() >= LOAD_PAGE_SIZE) {
+                loadNextPage(documents.get(documents.size() - 1));
+                return;
+            }
+            save();
+            long since = fullSyncAt - CLOCK_SKEW_MS;
+            mainHandler.post(() -> {
+                finishLoading(null);
+                listenForChanges(since);
+            });
+        });
+    }
+
+    private void finishLoading(Exception error) {
+        loading = false;
+        loaded = error == null;
+        List<LoadCallback> callbacks = new ArrayList<>(pendingCallbacks);
+        pendingCallbacks.clear();
+        for (LoadCallback callback : callbacks) {
+            if (error == null) {
+                callback.onLoaded();
+            } else {
+                Log.e("ItemRepository", "Error loading items", error);
+                callback.onError(error);
+            }
+        }
+    }
+
+    // Keeps the local copy in step with an item this device just saved
+    public void add(Item item) {
+        indexExecutor.execute(() -> {
+            item.formatForDisplay();
+            addToIndexes(item);
+            scheduleSave();
+        });
+    }
+
+    // Items reported, edited or deleted elsewhere since the given time. Changes are indexed on the index
+    // thread, in the order Firestore delivers them.
+    private void listenForChanges(long sinceMillis) {
+        if (changesRegistration != null) {
+            return;
+        }
+        changesRegistration = db.collection("items")
+                .whereGreaterThan("dateAdded", new Date(sinceMillis))
+                .addSnapshotListener(indexExecutor, this::applyChanges);
+    }
+
+    private void applyChanges(QuerySnapshot snapshot, FirebaseFirestoreException error) {
+        if (error != null) {
+            // Firestore has ended the listener; searches keep working on what was loaded
+            Log.e("ItemRepository", "Item change listener failed", error);
+            mainHandler.post(() -> {
+                changesRegistration = null;
+                finishRestore();
+            });
+            return;
+        }
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        for (DocumentChange change : changes) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                removeFromIndexes(change.getDocument().getId());
+            } else {
+                addToIndexes(Item.read(change.getDocument()));
+            }
+        }
+        if (!snapshot.getMetadata().isFromCache()) {
+            Metrics.add(Metrics.Counter.SERVER_DOCUMENTS, changes.size());
+        }
+        if (!changes.isEmpty()) {
+            scheduleSave();
+        }
+        mainHandler.post(this::finishRestore);
+    }
+
+    // A restored copy counts as loaded once the listener has delivered what was added while the app was closed
+    private void finishRestore() {
+        if (loadOnFirstChanges) {
+            loadOnFirstChanges = false;
+            finishLoading(null);
+        }
+    }
+
+    private void removeFromIndexes(String id) {
+        textIndex.remove(id);
+        imageHashIndex.remove(id);
+        synchronized (itemsById) {
+            itemsById.remove(id);
+            if (embeddingIndex != null) {
+                embeddingIndex.remove(id);
+            }
+        }
+    }
+
+    private void addToIndexes(Item item) {
+        if (item == null || item.getId() == null) {
+            return;
+        }
+        float[] embedding = item.getEmbeddingArray();
+        item.setEmbedding(null); // Only the index's int8 copy is kept
+        addToIndexes(item, embedding, null);
+    }
+
+    // Takes the embedding either as floats or as a row saved from the EmbeddingIndex
+    private void addToIndexes(Item item, float[] embedding, byte[] quantized) {
+        List<String> labels = item.getLabels();
+        textIndex.put(item.getId(), item.getName(), item.getCategory(), labels == null ? null : TextUtils.join(" ", labels));
+        if (item.getImageHash() != null) {
+            try {
+                imageHashIndex.put(item.getId(), PerceptualHash.fromHex(item.getImageHash()));
+            } catch (NumberFormatException e) {
+                Log.w("ItemRepository", "Ignoring malformed image hash on " + item.getId());
+            }
+        }
+        if (item.getDateAdded() != null) {
+            newestDateAdded = Math.max(newestDateAdded, item.getDateAdded().getTime());
+        }
+        int dimension = embedding != null ? embedding.length : quantized != null ? quantized.length : 0;
+        synchronized (itemsById) {
+            itemsById.put(item.getId(), item);
+            if (dimension == 0) {
+                return;
+            }
+            if (embeddingIndex == null) {
+                embeddingIndex = new EmbeddingIndex(dimension);
+            }
+            // Vectors from a model with a different label count cannot be compared
+            if (dimension != embeddingIndex.getDimension()) {
+                return;
+            }
+            if (embedding != null) {
+                embeddingIndex.put(item.getId(), embedding);
+            } else {
+                embeddingIndex.putRow(item.getId(), quantized);
+            }
+        }
+    }
+
+    private void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            mainHandler.postDelayed(() -> indexExecutor.execute(this::save), SAVE_DELAY_MS);
+        }
+    }
+
+    // Index thread only. Written to a temporary file and renamed, so a crash never leaves half a copy.
+    private void save() {
+        saveScheduled.set(false);
+        File temporary = new File(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            synchronized (itemsById) {
+                int dimension = embeddingIndex != null ? embeddingIndex.getDimension() : 0;
+                byte[] row = new byte[dimension];
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(fullSyncAt);
+                out.writeInt(dimension);
+                out.writeInt(itemsById.size());
+                for (Item item : itemsById.values()) {
+                    writeItem(out, item);
+                    boolean hasRow = embeddingIndex != null && embeddingIndex.copyRow(item.getId(), row);
+                    out.writeBoolean(hasRow);
+                    if (hasRow) {
+                        out.write(row);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w("ItemRepository", "Could not save the item index", e);
+            temporary.delete();
+            return;
+        }
+        if (!temporary.renameTo(snapshotFile)) {
+            temporary.delete();
+        }
+    }
+
+    // Index thread only. False when there is no saved copy, it can't be read, or it is due for a full sync.
+    private boolean restore(long now) {
+        if (!snapshotFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return false;
+            }
+            long savedFullSyncAt = in.readLong();
+            if (now - savedFullSyncAt > FULL_SYNC_INTERVAL_MS || savedFullSyncAt > now) {
+                return false;
+            }
+            int dimension = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Item item = readItem(in);
+                byte[] row = null;
+                if (in.readBoolean()) {
+                    row = new byte[dimension];
+                    in.readFully(row);
+                }
+                addToIndexes(item, null, row);
+            }
+            fullSyncAt = savedFullSyncAt;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.w("ItemRepository", "Dropping unreadable item index", e);
+            clearIndexes();
+            snapshotFile.delete();
+            return false;
+        }
+    }
+
+    private void clearIndexes() {
+        List<String> ids;
+        synchronized (itemsById) {
+            ids = new ArrayList<>(itemsById.keySet());
+        }
+        for (String id : ids) {
+            removeFromIndexes(id);
+        }
+        newestDateAdded = 0;
+    }
+
+    private static void writeItem(DataOutputStream out, Item item) throws IOException {
+        out.writeUTF(item.getId());
+        writeNullable(out, item.getName());
+        writeNullable(out, item.getCategory());
+        writeNullable(out, item.getImageUrl());
+        writeNullable(out, item.getThumbnailUrl());
+        out.writeLong(item.getDateAdded() != null ? item.getDateAdded().getTime() : Long.MIN_VALUE);
+        List<String> labels = item.getLabels();
+        out.writeInt(labels != null ? labels.size() : -1);
+        if (labels != null) {
+            for (String label : labels) {
+                writeNullable(out, label);
+            }
+        }
+        writeNullable(out, item.getImageHash());
+        out.writeBoolean(item.hasLocation());
+        if (item.hasLocation()) {
+            out.writeDouble(item.getLatitude());
+            out.writeDouble(item.getLongitude());
+        }
+    }
+
+    private static Item readItem(DataInputStream in) throws IOException {
+        Item item = new Item();
+        item.setId(in.readUTF());
+        item.setName(readNullable(in));
+        item.setCategory(readNullable(in));
+        item.setImageUrl(readNullable(in));
+        item.setThumbnailUrl(readNullable(in));
+        long dateAdded = in.readLong();
+        item.setDateAdded(dateAdded != Long.MIN_VALUE ? new Date(dateAdded) : null);
+        int labelCount = in.readInt();
+        if (labelCount >= 0) {
+            List<String> labels = new ArrayList<>(labelCount);
+            for (int i = 0; i < labelCount; i++) {
+                labels.add(readNullable(in));
+            }
+            item.setLabels(labels);
+        }
+        item.setImageHash(readNullable(in));
+        if (in.readBoolean()) {
+            item.setLocation(in.readDouble(), in.readDouble());
+        }
+        item.formatForDisplay();
+        return item;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Items whose name, category or labels match the query, including partial words and small typos, best first
+    public List<Item> searchText(String query, int limit) {
+        String[] ids = new String[limit];
+        float[] scores = new float[limit];
+        long start = Metrics.start();
+        int found = textIndex.search(query, limit, ids, scores);
+        Metrics.record(Metrics.Stage.LOCAL_SEARCH, start);
+        List<Item> results = new ArrayList<>();
+        synchronized (itemsById) {
+            for (int i = 0; i < found; i++) {
+                Item item = itemsById.get(ids[i]);
+                if (item != null) {
+                    results.add(item);
+                }
+            }
+        }
+        return results;
+    }
+
+    // Items whose photo hash is within maxDistance bits of imageHash, closest first.
+    // A distance of a few bits means the same photo or a near copy of it.
+    public List<Item> findByImageHash(long imageHash, int maxDistance) {
+        long start = Metrics.start();
+        List<BkTree.Match> matches = imageHashIndex.search(imageHash, maxDistance);
+        Metrics.record(Metrics.Stage.LOCAL_SEARCH, start);
+        List<Item> results = new ArrayList<>();
+        synchronized (itemsById) {
+            for (BkTree.Match match : matches) {
+                Item item = itemsById.get(match.id);
+                if (item != null) {
+                    results.add(item);
+                }
+            }
+        }
+        return results;
+    }
+
+    // Items ranked by cosine similarity of their stored embedding to the query, best first
+    public List<Item> findSimilar(float[] embedding, int limit) {
+        String[] ids = new String[limit];
+        float[] scores = new float[limit];
+        List<Item> results = new ArrayList<>();
+        synchronized (itemsById) {
+            if (embeddingIndex == null || embeddingIndex.getDimension() != embedding.length) {
+                return results;
+            }
+            long start = Metrics.start();
+            int found = embeddingIndex.search(embedding, limit, ids, scores);
+            Metrics.record(Metrics.Stage.LOCAL_SEARCH, start);
+            for (int i = 0; i < found; i++) {
+                Item item = itemsById.get(ids[i]);
+                if (item != null) {
+                    results.add(item);
+                }
+            }
+        }
+        return results;
+    }
+}
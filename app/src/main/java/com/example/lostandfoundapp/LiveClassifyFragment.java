@@ -0,0 +1,280 @@
+package com.example.lostandfoundapp;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Classifies the camera preview continuously. Frames go from YUV straight into model-size pixels on the
+// analysis thread; while a frame is in inference newer ones are dropped, so the label always describes
+// what the camera sees now. The label shown is the top of the scores averaged over the last few frames.
+public class LiveClassifyFragment extends Fragment {
+
+    // Fragment result sent to the search screen when the user picks the current label
+    public static final String RESULT_KEY = "liveClassification";
+    public static final String RESULT_LABEL = "label";
+    public static final String RESULT_SCORES = "scores";
+
+    private static final int PERMISSION_REQUEST_CODE = 101;
+    private static final int SMOOTHING_WINDOW = 8;
+    private static final Size ANALYSIS_RESOLUTION = new Size(640, 480);
+
+    private PreviewView previewView;
+    private TextView liveLabel;
+    private TextView liveStats;
+    private Button useLabelButton;
+
+    private ExecutorService analysisExecutor;
+    private ProcessCameraProvider cameraProvider;
+    private InferenceScheduler scheduler;
+    private List<String> labels;
+
+    // One frame in inference at a time, so the pixel buffer and result below are reused for every frame
+    private FrameGate frameGate;
+    private YuvConverter converter;
+    private int[] framePixels;
+    private final ClassificationResult frameResult = new ClassificationResult();
+    private volatile InferenceScheduler.InferenceJob<ClassificationResult> pendingFrame;
+
+    // Main thread only
+    private LabelSmoother smoother;
+    private int smoothedLabel = -1;
+    private long statsStart;
+    private int framesClassified;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_live, container, false);
+        previewView = view.findViewById(R.id.previewView);
+        liveLabel = view.findViewById(R.id.liveLabel);
+        liveStats = view.findViewById(R.id.liveStats);
+        useLabelButton = view.findViewById(R.id.useLiveLabelButton);
+        useLabelButton.setOnClickListener(v -> returnLabel());
+
+        analysisExecutor = Executors.newSingleThreadExecutor();
+        frameGate = new FrameGate(1);
+        smoother = null;
+        smoothedLabel = -1;
+
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        app.getModelManager().startLoading();
+        app.getModelManager().whenReady(new ModelManager.ReadyCallback() {
+            @Override
+            public void onReady(InferenceScheduler readyScheduler) {
+                if (getView() == null) {
+                    return;
+                }
+                useScheduler(readyScheduler);
+                checkPermissionAndStart();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (getView() != null) {
+                    Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        return view;
+    }
+
+    // Sizes the frame buffers for the scheduler's model. Called before the camera starts, and after a model
+    // swap from a frame callback, while the frame gate keeps the analyzer away from the buffers.
+    private void useScheduler(InferenceScheduler newScheduler) {
+        scheduler = newScheduler;
+        labels = newScheduler.getLabels();
+        ModelSpec spec = newScheduler.getModelSpec();
+        converter = new YuvConverter(spec.getInputWidth(), spec.getInputHeight());
+        framePixels = new int[spec.getInputWidth() * spec.getInputHeight()];
+        smoother = null; // Scores of different models can't be averaged together
+        smoothedLabel = -1;
+    }
+
+    // Main thread, from a frame callback
+    private void followModelSwap() {
+        InferenceScheduler active = ((MyApplication) getActivity().getApplication()).getInferenceScheduler();
+        if (active != null && active != scheduler) {
+            useScheduler(active);
+        }
+    }
+
+    private void checkPermissionAndStart() {
+        if (ContextCompat.checkSelfPermission(getContext(), Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.CAMERA}, PERMISSION_REQUEST_CODE);
+        } else {
+            startCamera();
+        }
+    }
+
+    private void startCamera() {
+        ListenableFuture<ProcessCameraProvider> providerFuture = ProcessCameraProvider.getInstance(requireContext());
+        providerFuture.addListener(() -> {
+            try {
+                cameraProvider = providerFuture.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e("LiveClassifyFragment", "Camera unavailable", e);
+                Toast.makeText(getContext(), "Camera not available", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (getView() != null) {
+                bindCamera();
+            }
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    private void bindCamera() {
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+        // The model input is far smaller, so the camera size closest to ANALYSIS_RESOLUTION is plenty;
+        // KEEP_ONLY_LATEST stops the camera from queueing frames behind a slow analyzer
+        ResolutionSelector resolution = new ResolutionSelector.Builder()
+                .setResolutionStrategy(new ResolutionStrategy(ANALYSIS_RESOLUTION,
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                .build();
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(resolution)
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+        analysis.setAnalyzer(analysisExecutor, this::analyze);
+
+        cameraProvider.unbindAll();
+        statsStart = SystemClock.elapsedRealtime();
+        framesClassified = 0;
+        cameraProvider.bindToLifecycle(getViewLifecycleOwner(), CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+    }
+
+    // Analysis thread. The frame is converted and closed right away so the camera gets its buffer back
+    // while inference runs on the scheduler.
+    private void analyze(ImageProxy image) {
+        boolean accepted = frameGate.tryAcquire();
+        try {
+            if (!accepted) {
+                Metrics.increment(Metrics.Counter.FRAMES_DROPPED);
+                return; // Inference is still busy with an earlier frame
+            }
+            long start = Metrics.start();
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            converter.convert(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                    image.getWidth(), image.getHeight(), image.getImageInfo().getRotationDegrees(), framePixels);
+            Metrics.record(Metrics.Stage.YUV_CONVERT, start);
+        } catch (RuntimeException e) {
+            Log.w("LiveClassifyFragment", "Could not convert frame", e);
+            frameGate.release();
+            return;
+        } finally {
+            image.close();
+        }
+
+        pendingFrame = scheduler.classifyPixels(InferenceScheduler.PRIORITY_INTERACTIVE, framePixels, frameResult,
+                new InferenceScheduler.Callback<ClassificationResult>() {
+                    @Override
+                    public void onResult(ClassificationResult result) {
+                        pendingFrame = null;
+                        onFrameClassified(result);
+                        if (getView() != null) {
+                            followModelSwap();
+                        }
+                        frameGate.release(); // Only now may the analyzer overwrite the pixels and result
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        pendingFrame = null;
+                        if (getView() != null) {
+                            followModelSwap(); // A retired scheduler rejects frames
+                        }
+                        frameGate.release();
+                    }
+                });
+    }
+
+    private void onFrameClassified(ClassificationResult result) {
+        if (getView() == null) {
+            return;
+        }
+        float[] scores = result.getScores();
+        if (smoother == null) {
+            smoother = new LabelSmoother(SMOOTHING_WINDOW, scores.length);
+        }
+        smoothedLabel = smoother.add(scores);
+        framesClassified++;
+
+        String name = Labels.clean(labels.get(smoothedLabel));
+        liveLabel.setText(String.format(Locale.US, "%s (%.0f%%)", name, smoother.averageScore(smoothedLabel) * 100));
+        long elapsed = SystemClock.elapsedRealtime() - statsStart;
+        float perSecond = elapsed > 0 ? framesClassified * 1000f / elapsed : 0f;
+        liveStats.setText(String.format(Locale.US, "%.1f frames/s, %d dropped", perSecond, frameGate.getDropped()));
+        useLabelButton.setEnabled(true);
+    }
+
+    // Hands the smoothed label and scores to the search screen and goes back to it
+    private void returnLabel() {
+        if (smoother == null || smoothedLabel < 0) {
+            return;
+        }
+        Bundle result = new Bundle();
+        result.putString(RESULT_LABEL, Labels.clean(labels.get(smoothedLabel)));
+        result.putFloatArray(RESULT_SCORES, smoother.averageScores());
+        getParentFragmentManager().setFragmentResult(RESULT_KEY, result);
+        getParentFragmentManager().popBackStack();
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        InferenceScheduler.InferenceJob<ClassificationResult> frame = pendingFrame;
+        if (frame != null) {
+            frame.cancel();
+        }
+        analysisExecutor.shutdown();
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == PERMISSION_REQUEST_CODE) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                if (getView() != null) {
+                    startCamera();
+                }
+            } else {
+                Toast.makeText(getContext(), "Permission denied", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.lostandfoundapp;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+// Fixed image cache budgets. The memory cache holds about two screens of decoded images and the bitmap
+// pool three, both capped by Glide to a share of the app's heap; downloaded and resized images are kept
+// on disk up to DISK_CACHE_BYTES so scrolling back or reopening a search doesn't download them again.
+@GlideModule
+public class LostAndFoundGlideModule extends AppGlideModule {
+
+    private static final long DISK_CACHE_BYTES = 100L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(2)
+                .setBitmapPoolScreens(3)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, "images", DISK_CACHE_BYTES));
+        // Stored images are immutable, so both the download and the resized result can be reused
+        builder.setDefaultRequestOptions(new RequestOptions().diskCacheStrategy(DiskCacheStrategy.ALL));
+    }
+
+    // Everything is configured here; skipping the manifest scan saves startup time
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
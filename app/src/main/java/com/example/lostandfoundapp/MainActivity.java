@@ -1,19 +1,31 @@
 package com.example.lostandfoundapp;
 
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class MainActivity extends AppCompatActivity {
 
     private Button buttonShowUpload;
     private Button buttonShowSearch;
     private FragmentManager fragmentManager;
 
+    private static final String TAG_UPLOAD = "upload";
+    private static final String TAG_SEARCH = "search";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -23,19 +35,84 @@ public class MainActivity extends AppCompatActivity {
         buttonShowSearch = findViewById(R.id.buttonShowSearch);
         fragmentManager = getSupportFragmentManager();
 
-        buttonShowUpload.setOnClickListener(v -> showFragment(new UploadItemFragment()));
-        buttonShowSearch.setOnClickListener(v -> showFragment(new SearchItemFragment()));
+        buttonShowUpload.setOnClickListener(v -> showTab(TAG_UPLOAD));
+        buttonShowSearch.setOnClickListener(v -> showTab(TAG_SEARCH));
+
+        // Debug builds: long-press either button for the per-stage metrics
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            View.OnLongClickListener showMetrics = v -> {
+                showMetrics();
+                return true;
+            };
+            buttonShowUpload.setOnLongClickListener(showMetrics);
+            buttonShowSearch.setOnLongClickListener(showMetrics);
+        }
 
         // Show the upload fragment by default
         if (savedInstanceState == null) {
-            showFragment(new UploadItemFragment());
+            showTab(TAG_UPLOAD);
+        }
+    }
+
+    private void showMetrics() {
+        String json = Metrics.toJson();
+        String text;
+        try {
+            text = new JSONObject(json).toString(2);
+        } catch (JSONException e) {
+            text = json;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Metrics")
+                .setMessage(text)
+                .setPositiveButton("Log", (dialog, which) -> logMetrics(json))
+                .setNeutralButton("Reset", (dialog, which) -> Metrics.reset())
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    // adb logcat -s Metrics; logcat truncates long lines, so the JSON goes out in chunks
+    private static void logMetrics(String json) {
+        for (int i = 0; i < json.length(); i += 3000) {
+            Log.i("Metrics", json.substring(i, Math.min(json.length(), i + 3000)));
         }
     }
 
-    private void showFragment(Fragment fragment) {
-        FragmentTransaction transaction = fragmentManager.beginTransaction();
-        transaction.replace(R.id.fragmentContainer, fragment);
-        transaction.addToBackStack(null);
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Picks up a model placed in the update folder without restarting the app
+        ((MyApplication) getApplication()).getModelManager().checkForUpdate();
+    }
+
+    // adb shell dumpsys activity com.example.lostandfoundapp/.MainActivity
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Metrics " + Metrics.toJson());
+    }
+
+    // Each tab's fragment is created once and then only shown or hidden, so switching keeps its results and
+    // views and never stacks another copy. After a rotation the fragment manager restores them by tag.
+    private void showTab(String tag) {
+        // Close the live camera or anything else opened on top of a tab
+        fragmentManager.popBackStackImmediate(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+
+        FragmentTransaction transaction = fragmentManager.beginTransaction().setReorderingAllowed(true);
+        Fragment target = fragmentManager.findFragmentByTag(tag);
+        for (String other : new String[]{TAG_UPLOAD, TAG_SEARCH}) {
+            Fragment fragment = fragmentManager.findFragmentByTag(other);
+            if (fragment != null && fragment != target) {
+                transaction.hide(fragment);
+            }
+        }
+        if (target == null) {
+            target = TAG_UPLOAD.equals(tag) ? new UploadItemFragment() : new SearchItemFragment();
+            transaction.add(R.id.fragmentContainer, target, tag);
+        } else {
+            transaction.show(target);
+        }
         transaction.commit();
     }
 }
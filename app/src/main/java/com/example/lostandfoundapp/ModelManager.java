@@ -0,0 +1,320 @@
+package com.example.lostandfoundapp;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Loads the model and labels in the background and hands out the InferenceScheduler once it is warmed up.
+// Callers wait with whenReady instead of finding a null Interpreter.
+// The newest model in the ModelRegistry is preferred over the one bundled in assets. installModel swaps in a
+// new model while the app runs: it is built and warmed up beside the active one, then replaces it in a single
+// assignment on the main thread, and the old scheduler finishes its queued jobs before closing.
+// Classification keeps running on the old model the whole time.
+public class ModelManager {
+
+    public enum State { NOT_STARTED, LOADING, READY, FAILED }
+
+    private static final String UPDATE_DIRECTORY = "model_update";
+    private static final long TUNING_DELAY_MS = 30 * 1000;
+    private static final long IDLE_POLL_MS = 1000;
+
+    // Both methods are called on the main thread
+    public interface ReadyCallback {
+        void onReady(InferenceScheduler scheduler);
+
+        void onFailed(Exception e);
+    }
+
+    private final Context context;
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile State state = State.NOT_STARTED;
+    private volatile InferenceScheduler scheduler;
+    private volatile Exception error;
+    private final ModelRegistry registry;
+    private final InterpreterTuner tuner;
+    private final List<ReadyCallback> pendingCallbacks = new ArrayList<>(); // Main thread only
+
+    public ModelManager(Context context, Executor executor) {
+        this.context = context.getApplicationContext();
+        this.executor = executor;
+        this.registry = new ModelRegistry(context);
+        this.tuner = new InterpreterTuner(context);
+    }
+
+    // Call on the main thread; safe to call more than once
+    public void startLoading() {
+        if (state != State.NOT_STARTED && state != State.FAILED) {
+            return;
+        }
+        state = State.LOADING;
+        executor.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            long metricsStart = Metrics.start();
+            try {
+                InferenceScheduler loaded = load();
+                Metrics.record(Metrics.Stage.MODEL_LOAD, metricsStart);
+                Log.d("ModelManager", "Model ready in " + (SystemClock.elapsedRealtime() - start) + " ms");
+                mainHandler.post(() -> finish(loaded, null));
+            } catch (Exception e) {
+                Log.e("ModelManager", "Error loading model or labels", e);
+                mainHandler.post(() -> finish(null, e));
+            }
+        });
+    }
+
+    private InferenceScheduler load() throws IOException, InterruptedException {
+        ModelRegistry.StoredModel stored = registry.newest();
+        if (stored != null) {
+            try {
+                InferenceScheduler loaded = build(stored.mapModel(), stored.readLabels());
+                Log.d("ModelManager", "Using installed " + stored);
+                return loaded;
+            } catch (IOException | RuntimeException e) {
+                Log.e("ModelManager", "Installed " + stored + " failed to load, using the bundled model", e);
+                registry.remove(stored);
+            }
+        }
+        return build(loadModelFile(), loadLabels());
+    }
+
+    // Verifies, builds and warms up a scheduler for the model; nothing is shared with the active one
+    private InferenceScheduler build(MappedByteBuffer model, List<String> modelLabels) throws InterruptedException {
+        String modelHash = InterpreterTuner.hashModel(model);
+        InterpreterConfig tuned = tuner.loadStored(modelHash);
+        InterpreterConfig config = tuned != null ? tuned : InterpreterConfig.DEFAULT;
+
+        // Each worker builds its own Interpreter over the same read-only model buffer
+        InferenceScheduler loaded = new InferenceScheduler(model, modelHash, modelLabels, config,
+                InferenceScheduler.defaultWorkerCount());
+        try {
+            loaded.warmUp();
+        } catch (InterruptedException | RuntimeException e) {
+            loaded.shutdown();
+            throw e;
+        }
+        if (tuned != null) {
+            Log.d("ModelManager", "Using tuned interpreter config: " + tuned);
+        } else {
+            tuneWhenIdle(loaded, model, modelLabels);
+        }
+        return loaded;
+    }
+
+    private void finish(InferenceScheduler loaded, Exception e) {
+        if (scheduler != null) {
+            // installModel swapped in a newer model while this one was loading
+            if (loaded != null) {
+                loaded.retire();
+            }
+            return;
+        }
+        scheduler = loaded;
+        error = e;
+        state = e == null ? State.READY : State.FAILED;
+        deliverPending();
+    }
+
+    private void deliverPending() {
+        List<ReadyCallback> callbacks = new ArrayList<>(pendingCallbacks);
+        pendingCallbacks.clear();
+        for (ReadyCallback callback : callbacks) {
+            deliver(callback);
+        }
+    }
+
+    // Installs a model file and its labels (one line per output) into the registry, loads it in the background
+    // and makes it the active model. Until then, and for good if it fails, the current model keeps serving.
+    // The callback runs on the main thread. Call on the main thread.
+    public void installModel(File modelFile, File labelsFile, String expectedSha256, ReadyCallback callback) {
+        executor.execute(() -> install(modelFile, labelsFile, expectedSha256, callback));
+    }
+
+    // A model dropped into <external files>/model_update/ as model.tflite and labels.txt, optionally with
+    // model.sha256 holding its hex hash, is installed and swapped in. The files are consumed either way, so
+    // a bad model is only tried once. Call on the main thread, e.g. whenever the app comes to the foreground.
+    public void checkForUpdate() {
+        if (state != State.READY) {
+            return;
+        }
+        executor.execute(() -> {
+            File directory = context.getExternalFilesDir(UPDATE_DIRECTORY);
+            if (directory == null) {
+                return; // Shared storage not mounted
+            }
+            File model = new File(directory, "model.tflite");
+            File labels = new File(directory, "labels.txt");
+            if (!model.isFile() || !labels.isFile()) {
+                return;
+            }
+            File hashFile = new File(directory, "model.sha256");
+            String expectedSha256 = null;
+            try {
+                if (hashFile.isFile()) {
+                    expectedSha256 = readHash(hashFile);
+                    if (expectedSha256 == null) {
+                        // A hash was meant to be checked, so the model isn't installed unverified
+                        Log.e("ModelManager", "Ignoring model update: " + hashFile + " has no hash");
+                        return;
+                    }
+                }
+                install(model, labels, expectedSha256, null);
+            } catch (IOException | RuntimeException e) {
+                Log.e("ModelManager", "Could not read model update", e);
+            } finally {
+                model.delete();
+                labels.delete();
+                hashFile.delete();
+            }
+        });
+    }
+
+    // The first line, or null if the file is empty
+    private static String readHash(File hashFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(hashFile)))) {
+            String line = reader.readLine();
+            return line == null || line.trim().isEmpty() ? null : line.trim();
+        }
+    }
+
+    // Executor thread; callback may be null
+    private void install(File modelFile, File labelsFile, String expectedSha256, ReadyCallback callback) {
+        ModelRegistry.StoredModel stored = null;
+        try {
+            stored = registry.install(modelFile, labelsFile, expectedSha256);
+            long metricsStart = Metrics.start();
+            InferenceScheduler loaded = build(stored.mapModel(), stored.readLabels());
+            Metrics.record(Metrics.Stage.MODEL_LOAD, metricsStart);
+            ModelRegistry.StoredModel installed = stored;
+            mainHandler.post(() -> {
+                swap(loaded);
+                Log.d("ModelManager", "Switched to " + installed);
+                executor.execute(() -> registry.removeAllExcept(installed));
+                if (callback != null) {
+                    callback.onReady(loaded);
+                }
+            });
+        } catch (Exception e) {
+            Log.e("ModelManager", "Could not install model", e);
+            if (stored != null) {
+                registry.remove(stored);
+            }
+            if (callback != null) {
+                mainHandler.post(() -> callback.onFailed(e));
+            }
+        }
+    }
+
+    // Main thread. Jobs submitted from here on go to the new scheduler; ones the old one already holds finish there.
+    private void swap(InferenceScheduler loaded) {
+        InferenceScheduler old = scheduler;
+        scheduler = loaded;
+        error = null;
+        if (old != null) {
+            old.retire();
+        }
+        if (state != State.READY) {
+            state = State.READY;
+            deliverPending(); // Anyone waiting on the first load gets this model
+        }
+    }
+
+    // Runs the callback right away if the model is ready or failed, otherwise once loading finishes.
+    // Call on the main thread.
+    public void whenReady(ReadyCallback callback) {
+        if (state == State.READY || state == State.FAILED) {
+            deliver(callback);
+            return;
+        }
+        pendingCallbacks.add(callback);
+        startLoading();
+    }
+
+    private void deliver(ReadyCallback callback) {
+        if (state == State.READY) {
+            callback.onReady(scheduler);
+        } else {
+            callback.onFailed(error);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // Null until the state is READY
+    public InferenceScheduler getScheduler() {
+        return scheduler;
+    }
+
+    // Labels of the active model; null until the state is READY
+    public List<String> getLabels() {
+        InferenceScheduler active = scheduler;
+        return active != null ? active.getLabels() : null;
+    }
+
+    // Hex SHA-256 of the active model, so results cached for one model are never used with another.
+    // Null until the state is READY.
+    public String getModelHash() {
+        InferenceScheduler active = scheduler;
+        return active != null ? active.getModelHash() : null;
+    }
+
+    // First launch, or a new model: runs with the default config and tunes for the next launch on a thread of
+    // its own, after a delay and only while this model has no jobs, so the timings aren't taken under load and
+    // the shared io executor stays free. Stops if the model is replaced before it finishes.
+    private void tuneWhenIdle(InferenceScheduler loaded, ByteBuffer model, List<String> modelLabels) {
+        Thread thread = new Thread(() -> {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                Thread.sleep(TUNING_DELAY_MS); // Past the burst of decoding and inference after startup
+                tuner.tune(loaded.getModelHash(), model, modelLabels, InferenceScheduler.defaultWorkerCount(), () -> {
+                    while (!loaded.isRetired() && !loaded.isIdle()) {
+                        Thread.sleep(IDLE_POLL_MS);
+                    }
+                    return !loaded.isRetired();
+                });
+            } catch (InterruptedException e) {
+                // Not tuned this time, tried again on the next launch
+            }
+        }, "interpreter-tuner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private MappedByteBuffer loadModelFile() throws IOException {
+        AssetFileDescriptor fileDescriptor = context.getAssets().openFd("model.tflite");
+        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+        FileChannel fileChannel = inputStream.getChannel();
+        long startOffset = fileDescriptor.getStartOffset();
+        long declaredLength = fileDescriptor.getDeclaredLength();
+        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    }
+
+    private List<String> loadLabels() throws IOException {
+        List<String> labelList = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(context.getAssets().open("labels.txt")));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            labelList.add(line);
+        }
+        reader.close();
+        return labelList;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.lostandfoundapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Models installed after the APK shipped, so a retrained model with new item classes needs no app update.
+// Each lives in files/models/<version>/ as model.tflite and labels.txt; the highest complete version wins.
+// Installs are copied into a ".partial" directory and renamed into place, so a crash never leaves a
+// half-written version behind.
+public class ModelRegistry {
+
+    private static final String DIRECTORY = "models";
+    private static final String MODEL_FILE = "model.tflite";
+    private static final String LABELS_FILE = "labels.txt";
+    private static final String PARTIAL_SUFFIX = ".partial";
+
+    public static class StoredModel {
+        final int version;
+        final File directory;
+
+        StoredModel(int version, File directory) {
+            this.version = version;
+            this.directory = directory;
+        }
+
+        // Memory-mapped like the bundled model, so the Interpreters read it without a heap copy
+        MappedByteBuffer mapModel() throws IOException {
+            try (FileInputStream in = new FileInputStream(new File(directory, MODEL_FILE))) {
+                FileChannel channel = in.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        List<String> readLabels() throws IOException {
+            List<String> labels = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(new File(directory, LABELS_FILE)), "UTF-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    labels.add(line);
+                }
+            }
+            return labels;
+        }
+
+        @Override
+        public String toString() {
+            return "model v" + version;
+        }
+    }
+
+    private final File root;
+
+    public ModelRegistry(Context context) {
+        this.root = new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    // Highest installed version, or null when only the bundled model exists
+    public synchronized StoredModel newest() {
+        StoredModel newest = null;
+        for (StoredModel model : installed()) {
+            if (newest == null || model.version > newest.version) {
+                newest = model;
+            }
+        }
+        return newest;
+    }
+
+    // Copies the files in as the next version. expectedSha256 is the model's published hash (hex), or null to
+    // skip the check; a model whose bytes don't match is rejected before anything tries to load it.
+    // Call off the main thread.
+    public synchronized StoredModel install(File modelFile, File labelsFile, String expectedSha256) throws IOException {
+        StoredModel newest = newest();
+        int version = newest != null ? newest.version + 1 : 1;
+        File partial = new File(root, version + PARTIAL_SUFFIX);
+        deleteRecursively(partial);
+        if (!partial.mkdirs()) {
+            throw new IOException("Could not create " + partial);
+        }
+        try {
+            File model = new File(partial, MODEL_FILE);
+            copy(modelFile, model);
+            // The copy is what gets loaded, so that is what is checked
+            String actual = ContentHash.sha256(new FileInputStream(model));
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(actual)) {
+                throw new IOException("Model hash mismatch, expected " + expectedSha256 + " got " + actual);
+            }
+            copy(labelsFile, new File(partial, LABELS_FILE));
+            File directory = new File(root, String.valueOf(version));
+            if (!partial.renameTo(directory)) {
+                throw new IOException("Could not move " + partial + " into place");
+            }
+            return new StoredModel(version, directory);
+        } catch (IOException e) {
+            deleteRecursively(partial);
+            throw e;
+        }
+    }
+
+    // A version that failed to load is removed so the next start doesn't try it again
+    public synchronized void remove(StoredModel model) {
+        Log.w("ModelRegistry", "Removing " + model);
+        deleteRecursively(model.directory);
+    }
+
+    // Drops every other version and leftover partial installs. Only call once the kept model is active:
+    // older models may still be mapped by the Interpreters being retired, which is fine on Linux since
+    // the mapping outlives the file.
+    public synchronized void removeAllExcept(StoredModel keep) {
+        File[] files = root.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (keep == null || !file.equals(keep.directory)) {
+                deleteRecursively(file);
+            }
+        }
+    }
+
+    private List<StoredModel> installed() {
+        List<StoredModel> models = new ArrayList<>();
+        File[] directories = root.listFiles();
+        if (directories == null) {
+            return models;
+        }
+        for (File directory : directories) {
+            if (!new File(directory, MODEL_FILE).isFile() || !new File(directory, LABELS_FILE).isFile()) {
+                continue;
+            }
+            try {
+                models.add(new StoredModel(Integer.parseInt(directory.getName()), directory));
+            } catch (NumberFormatException e) {
+                // A partial install or something that isn't ours
+            }
+        }
+        return models;
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        try (InputStream in = new FileInputStream(from); OutputStream out = new FileOutputStream(to)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.lostandfoundapp;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+// Input/output layout of the loaded model, read from the Interpreter instead of being hard-coded.
+// Lets the same code run float models and int8/uint8 quantized models.
+public class ModelSpec {
+
+    final DataType inputType;
+    final int inputHeight;
+    final int inputWidth;
+    final int inputChannels;
+    final float inputScale;
+    final int inputZeroPoint;
+
+    final DataType outputType;
+    final int outputSize;
+    final float outputScale;
+    final int outputZeroPoint;
+
+    private ModelSpec(Tensor input, Tensor output) {
+        int[] inputShape = input.shape(); // [1, height, width, channels]
+        if (inputShape.length != 4 || inputShape[3] != 3) {
+            throw new IllegalArgumentException("Expected an RGB image input, got shape " + shapeToString(inputShape));
+        }
+        inputType = checkType(input.dataType());
+        inputHeight = inputShape[1];
+        inputWidth = inputShape[2];
+        inputChannels = inputShape[3];
+        inputScale = input.quantizationParams().getScale();
+        inputZeroPoint = input.quantizationParams().getZeroPoint();
+
+        int[] outputShape = output.shape(); // [1, labels]
+        outputType = checkType(output.dataType());
+        outputSize = outputShape[outputShape.length - 1];
+        outputScale = output.quantizationParams().getScale();
+        outputZeroPoint = output.quantizationParams().getZeroPoint();
+    }
+
+    public static ModelSpec read(Interpreter tflite) {
+        return new ModelSpec(tflite.getInputTensor(0), tflite.getOutputTensor(0));
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    public boolean isQuantized() {
+        return inputType != DataType.FLOAT32;
+    }
+
+    int inputBytes() {
+        return inputHeight * inputWidth * inputChannels * bytesPerElement(inputType);
+    }
+
+    int outputBytes() {
+        return outputSize * bytesPerElement(outputType);
+    }
+
+    static int bytesPerElement(DataType type) {
+        return type == DataType.FLOAT32 ? 4 : 1;
+    }
+
+    private static DataType checkType(DataType type) {
+        if (type != DataType.FLOAT32 && type != DataType.UINT8 && type != DataType.INT8) {
+            throw new IllegalArgumentException("Unsupported tensor type " + type);
+        }
+        return type;
+    }
+
+    private static String shapeToString(int[] shape) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < shape.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(shape[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "input " + inputType + " " + inputWidth + "x" + inputHeight + "x" + inputChannels
+                + " (scale " + inputScale + ", zero point " + inputZeroPoint + "), output " + outputType + " x" + outputSize
+                + " (scale " + outputScale + ", zero point " + outputZeroPoint + ")";
+    }
+}
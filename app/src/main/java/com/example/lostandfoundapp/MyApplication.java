@@ -1,63 +1,83 @@
 package com.example.lostandfoundapp;
 
 import android.app.Application;
-import android.content.res.AssetFileDescriptor;
-import android.util.Log;
-
-import org.tensorflow.lite.Interpreter;
-
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.ArrayList;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
+
+import java.io.File;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MyApplication extends Application {
 
-    private Interpreter tflite;
-    private List<String> labels;
+    private ModelManager modelManager;
+    private ItemRepository itemRepository;
+    private UploadQueue uploadQueue;
+    private final QueryCache queryCache = new QueryCache();
+    private ClassificationCache classificationCache;
+    // 2 MB fits the subsampled decode behind a model input; display-sized bitmaps are recycled instead
+    private final BitmapPool bitmapPool = new BitmapPool(4, 2 * 1024 * 1024);
+    // Decoding and other disk/network-bound work that must stay off the main thread
+    private final ExecutorService ioExecutor = Executors.newFixedThreadPool(2);
 
     @Override
     public void onCreate() {
+        long start = Metrics.start();
         super.onCreate();
 
-        // Load the TensorFlow Lite model
-        try {
-            tflite = new Interpreter(loadModelFile());
-            labels = loadLabels();  // Ensure this method correctly initializes the labels list
-        } catch (IOException e) {
-            Log.e("MyApplication", "Error loading model or labels", e);
-        }
+        // Load the TensorFlow Lite model in the background so the first activity is not held up by it
+        modelManager = new ModelManager(this, ioExecutor);
+        modelManager.startLoading();
+        itemRepository = new ItemRepository(FirebaseFirestore.getInstance(), new File(getCacheDir(), "items.bin"));
+        classificationCache = new ClassificationCache(new File(getCacheDir(), "classifications"), ioExecutor);
+
+        // Continue any uploads that were still queued when the app last stopped.
+        // A new item may belong in any cached search, so those are revalidated on their next use.
+        uploadQueue = new UploadQueue(this, FirebaseFirestore.getInstance(), FirebaseStorage.getInstance().getReference(),
+                item -> {
+                    itemRepository.add(item);
+                    queryCache.markAllStale();
+                });
+        uploadQueue.resume();
+        Metrics.record(Metrics.Stage.APP_START, start);
+    }
+
+    public ModelManager getModelManager() {
+        return modelManager;
+    }
+
+    // Null until the model has loaded, use getModelManager().whenReady to wait for it
+    public InferenceScheduler getInferenceScheduler() {
+        return modelManager.getScheduler();
+    }
+
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    public ItemRepository getItemRepository() {
+        return itemRepository;
     }
 
-    private MappedByteBuffer loadModelFile() throws IOException {
-        AssetFileDescriptor fileDescriptor = this.getAssets().openFd("model.tflite");
-        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-        FileChannel fileChannel = inputStream.getChannel();
-        long startOffset = fileDescriptor.getStartOffset();
-        long declaredLength = fileDescriptor.getDeclaredLength();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    public ClassificationCache getClassificationCache() {
+        return classificationCache;
     }
 
-    private List<String> loadLabels() throws IOException {
-        List<String> labelList = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(this.getAssets().open("labels.txt")));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            labelList.add(line);
-        }
-        reader.close();
-        return labelList;
+    public QueryCache getQueryCache() {
+        return queryCache;
     }
 
-    public Interpreter getTflite() {
-        return tflite;
+    public UploadQueue getUploadQueue() {
+        return uploadQueue;
     }
 
     public List<String> getLabels() {
-        return labels;
+        return modelManager.getLabels();
     }
 }
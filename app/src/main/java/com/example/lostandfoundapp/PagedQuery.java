@@ -0,0 +1,222 @@
+package com.example.lostandfoundapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Reads an ordered query a page at a time, each page starting after the last document of the previous one.
+// Only one page is in flight at a time, so the cost of each call stays the same however large the collection is.
+//
+// With a QueryCache, pages are looked up by cacheKey and cursor first and delivered right away. A stale page,
+// or one answered from Firestore's local cache, is then re-read from the server; when that read completes the
+// page is replaced in getItems() and the RevalidationListener is told.
+public class PagedQuery {
+
+    public interface PageCallback {
+        void onPage(List<Item> items, boolean hasMore);
+
+        void onError(Exception e);
+    }
+
+    public interface RevalidationListener {
+        void onRevalidated(PagedQuery query);
+    }
+
+    // Items are read from query results here rather than on the main thread; RecentFeed shares it
+    static final ExecutorService READ_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private interface ReadCallback {
+        // items is null if the read failed
+        void onRead(Task<QuerySnapshot> task, List<Item> items);
+    }
+
+    private final Query query;
+    private final int pageSize;
+    private final QueryCache cache;
+    private final String cacheKey;
+    private RevalidationListener revalidationListener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Touched only from the thread callbacks run on
+    private DocumentSnapshot lastDocument;
+    private boolean loading;
+    private boolean exhausted;
+    private final List<List<Item>> pages = new ArrayList<>();
+
+    // The query must already be ordered; Firestore needs a stable order for cursors
+    public PagedQuery(Query query, int pageSize) {
+        this(query, pageSize, null, null);
+    }
+
+    // cacheKey must identify the query's filters and order, e.g. "name:wallet". Cached queries are main thread only.
+    public PagedQuery(Query query, int pageSize, QueryCache cache, String cacheKey) {
+        this.query = query;
+        this.pageSize = pageSize;
+        this.cache = cache;
+        this.cacheKey = cacheKey;
+    }
+
+    public void setRevalidationListener(RevalidationListener listener) {
+        revalidationListener = listener;
+    }
+
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    // Every item of the pages loaded so far, in query order
+    public List<Item> getItems() {
+        List<Item> items = new ArrayList<>();
+        for (List<Item> page : pages) {
+            items.addAll(page);
+        }
+        return items;
+    }
+
+    // Callbacks run on the main thread
+    public void loadNextPage(PageCallback callback) {
+        loadNextPage(null, callback);
+    }
+
+    // Callbacks run on the executor, or the main thread if it is null. Ignored while a page is loading or when exhausted.
+    // A page found in the QueryCache is delivered before this returns.
+    public void loadNextPage(Executor executor, PageCallback callback) {
+        if (loading || exhausted) {
+            return;
+        }
+        int index = pages.size();
+        DocumentSnapshot cursor = lastDocument;
+        if (cache != null) {
+            QueryCache.Page cached = cache.get(pageKey(cursor));
+            if (cached != null) {
+                addPage(cached.items, cached.lastDocument, cached.hasMore);
+                callback.onPage(cached.items, cached.hasMore);
+                if (!cached.isFresh()) {
+                    revalidate(index, cursor);
+                }
+                return;
+            }
+        }
+
+        loading = true;
+        Query page = pageQuery(cursor);
+        long start = Metrics.start();
+        if (cache != null) {
+            // Firestore's local cache answers without the network; the server read then replaces the page
+            read(page.get(Source.CACHE), null, (t, items) -> {
+                if (items != null && !items.isEmpty()) {
+                    deliver(t, items, start, cursor, callback);
+                    revalidate(index, cursor);
+                } else {
+                    read(page.get(Source.SERVER), null, (s, serverItems) -> deliver(s, serverItems, start, cursor, callback));
+                }
+            });
+        } else {
+            read(page.get(), executor, (t, items) -> deliver(t, items, start, cursor, callback));
+        }
+    }
+
+    // Reads the result's Items on READ_EXECUTOR, then hands them on on the executor, or the main thread if it is null
+    private void read(Task<QuerySnapshot> task, Executor executor, ReadCallback callback) {
+        task.addOnCompleteListener(READ_EXECUTOR, t -> {
+            List<Item> items = t.isSuccessful() ? readItems(t.getResult()) : null;
+            Runnable next = () -> callback.onRead(t, items);
+            if (executor != null) {
+                executor.execute(next);
+            } else {
+                mainHandler.post(next);
+            }
+        });
+    }
+
+    private Query pageQuery(DocumentSnapshot cursor) {
+        Query page = query.limit(pageSize);
+        return cursor != null ? page.startAfter(cursor) : page;
+    }
+
+    private String pageKey(DocumentSnapshot cursor) {
+        return cacheKey + "@" + (cursor != null ? cursor.getId() : "");
+    }
+
+    // items is null if the read failed
+    private void deliver(Task<QuerySnapshot> task, List<Item> items, long start, DocumentSnapshot cursor, PageCallback callback) {
+        loading = false;
+        if (items == null) {
+            callback.onError(task.getException());
+            return;
+        }
+        Metrics.record(Metrics.Stage.FIRESTORE_QUERY, start);
+        QuerySnapshot snapshot = task.getResult();
+        DocumentSnapshot last = items.isEmpty() ? cursor : snapshot.getDocuments().get(items.size() - 1);
+        // A short page means the query has no more results
+        boolean hasMore = items.size() >= pageSize;
+        if (cache != null) {
+            cache.put(pageKey(cursor), items, last, hasMore, !snapshot.getMetadata().isFromCache());
+        }
+        addPage(items, last, hasMore);
+        callback.onPage(items, hasMore);
+    }
+
+    private void addPage(List<Item> items, DocumentSnapshot last, boolean hasMore) {
+        pages.add(items);
+        lastDocument = last;
+        exhausted = !hasMore;
+    }
+
+    // Re-reads page index from the server and swaps it in; on failure the cached copy stays
+    private void revalidate(int index, DocumentSnapshot cursor) {
+        Metrics.increment(Metrics.Counter.REVALIDATIONS);
+        long start = Metrics.start();
+        read(pageQuery(cursor).get(Source.SERVER), null, (t, items) -> {
+            if (items == null) {
+                Log.w("PagedQuery", "Revalidating " + cacheKey + " failed", t.getException());
+                return;
+            }
+            Metrics.record(Metrics.Stage.FIRESTORE_QUERY, start);
+            QuerySnapshot snapshot = t.getResult();
+            DocumentSnapshot last = items.isEmpty() ? cursor : snapshot.getDocuments().get(items.size() - 1);
+            boolean hasMore = items.size() >= pageSize;
+            cache.put(pageKey(cursor), items, last, hasMore, true);
+            pages.set(index, items);
+            if (index == pages.size() - 1) {
+                // Later pages continue from the fresh cursor
+                lastDocument = last;
+                exhausted = !hasMore;
+            }
+            if (revalidationListener != null) {
+                revalidationListener.onRevalidated(this);
+            }
+        });
+    }
+
+    // Call off the main thread
+    static List<Item> readItems(QuerySnapshot snapshot) {
+        long start = Metrics.start();
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        List<Item> items = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            items.add(Item.read(document));
+        }
+        Metrics.record(Metrics.Stage.DESERIALIZE, start);
+        if (!snapshot.getMetadata().isFromCache()) {
+            Metrics.add(Metrics.Counter.SERVER_DOCUMENTS, documents.size());
+        }
+        return items;
+    }
+}
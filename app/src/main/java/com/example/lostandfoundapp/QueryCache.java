@@ -0,0 +1,67 @@
+package com.example.lostandfoundapp;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+// Recent query pages, keyed by normalized query plus page cursor, evicted least recently used once
+// MAX_CACHED_ITEMS items are held. Pages younger than FRESH_MS are served as they are; older ones are
+// served and then revalidated against the server (stale-while-revalidate). Pages are immutable and
+// LruCache is synchronized, so any thread may use it.
+public class QueryCache {
+
+    public static final long FRESH_MS = 60 * 1000;
+    private static final int MAX_CACHED_ITEMS = 2000;
+
+    public static class Page {
+        final List<Item> items;
+        final DocumentSnapshot lastDocument; // Cursor for the page after this one
+        final boolean hasMore;
+        final long storedAt;
+
+        Page(List<Item> items, DocumentSnapshot lastDocument, boolean hasMore, long storedAt) {
+            this.items = items;
+            this.lastDocument = lastDocument;
+            this.hasMore = hasMore;
+            this.storedAt = storedAt;
+        }
+
+        boolean isFresh() {
+            return storedAt != 0L && SystemClock.elapsedRealtime() - storedAt < FRESH_MS;
+        }
+    }
+
+    private final LruCache<String, Page> pages = new LruCache<String, Page>(MAX_CACHED_ITEMS) {
+        @Override
+        protected int sizeOf(String key, Page page) {
+            return Math.max(1, page.items.size());
+        }
+    };
+
+    public Page get(String key) {
+        Page page = pages.get(key);
+        Metrics.increment(page != null ? Metrics.Counter.QUERY_CACHE_HITS : Metrics.Counter.QUERY_CACHE_MISSES);
+        return page;
+    }
+
+    // fresh is false for pages read from Firestore's local cache, so the next read revalidates them
+    public void put(String key, List<Item> items, DocumentSnapshot lastDocument, boolean hasMore, boolean fresh) {
+        pages.put(key, new Page(items, lastDocument, hasMore, fresh ? SystemClock.elapsedRealtime() : 0L));
+    }
+
+    // After a write every cached page may be out of date; they stay usable but are revalidated on the next hit
+    public void markAllStale() {
+        for (Map.Entry<String, Page> entry : pages.snapshot().entrySet()) {
+            Page page = entry.getValue();
+            pages.put(entry.getKey(), new Page(page.items, page.lastDocument, page.hasMore, 0L));
+        }
+    }
+
+    public void clear() {
+        pages.evictAll();
+    }
+}
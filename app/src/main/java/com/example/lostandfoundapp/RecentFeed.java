@@ -0,0 +1,146 @@
+package com.example.lostandfoundapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The newest items as a live list, kept current by a Firestore snapshot listener. The first snapshot reads
+// the whole feed; after that each added, changed or removed item costs one document read and arrives as a
+// single change, which is applied to the list in place. Documents are read into Items on PagedQuery's
+// READ_EXECUTOR. A burst of changes, such as a bulk intake committing, reaches the listener as one update
+// per THROTTLE_MS. Call on the main thread.
+public class RecentFeed {
+
+    public interface Listener {
+        // items is a copy and is never modified afterwards
+        void onFeedChanged(List<Item> items);
+
+        void onFeedError(Exception e);
+    }
+
+    private static final long THROTTLE_MS = 500;
+
+    private final Query query;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flush = this::flush;
+    private final List<Item> items = new ArrayList<>(); // In query order, newest first
+    private ListenerRegistration registration;
+    private int generation; // Counts listeners started and stopped, so late changes from an old one are dropped
+    private boolean flushScheduled;
+    private long lastFlushAt;
+
+    public RecentFeed(FirebaseFirestore db, int size, Listener listener) {
+        this.query = db.collection("items").orderBy("dateAdded", Query.Direction.DESCENDING).limit(size);
+        this.listener = listener;
+    }
+
+    public boolean isStarted() {
+        return registration != null;
+    }
+
+    // A new listener's first snapshot lists every document as added, so the list is rebuilt from empty.
+    // Firestore answers it from its local cache first when it can.
+    public void start() {
+        if (registration != null) {
+            return;
+        }
+        items.clear();
+        int started = ++generation;
+        registration = query.addSnapshotListener(PagedQuery.READ_EXECUTOR,
+                (snapshot, error) -> onSnapshot(snapshot, error, started));
+    }
+
+    // Nothing is read while stopped; pending updates are dropped with the listener
+    public void stop() {
+        if (registration == null) {
+            return;
+        }
+        registration.remove();
+        registration = null;
+        generation++; // Changes already read for the old listener are dropped
+        handler.removeCallbacks(flush);
+        flushScheduled = false;
+    }
+
+    // READ_EXECUTOR: the changed documents are read into Items here, off the main thread, and applied there
+    private void onSnapshot(QuerySnapshot snapshot, FirebaseFirestoreException error, int generation) {
+        if (error != null) {
+            handler.post(() -> {
+                if (generation == this.generation) {
+                    // Firestore has already ended the listener
+                    Log.e("RecentFeed", "Feed listener failed", error);
+                    registration = null;
+                    listener.onFeedError(error);
+                }
+            });
+            return;
+        }
+        long start = Metrics.start();
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        List<Item> changed = new ArrayList<>(changes.size()); // Each change's new Item, null for a removal
+        for (DocumentChange change : changes) {
+            changed.add(change.getType() == DocumentChange.Type.REMOVED ? null : Item.read(change.getDocument()));
+        }
+        Metrics.record(Metrics.Stage.DESERIALIZE, start);
+        if (!snapshot.getMetadata().isFromCache()) {
+            Metrics.add(Metrics.Counter.SERVER_DOCUMENTS, changes.size());
+        }
+        handler.post(() -> {
+            if (generation == this.generation && !changes.isEmpty()) {
+                apply(changes, changed);
+                scheduleFlush();
+            }
+        });
+    }
+
+    // Each change's indexes assume the ones before it were applied, so they are applied in order
+    private void apply(List<DocumentChange> changes, List<Item> changed) {
+        for (int i = 0; i < changes.size(); i++) {
+            DocumentChange change = changes.get(i);
+            switch (change.getType()) {
+                case ADDED:
+                    items.add(change.getNewIndex(), changed.get(i));
+                    break;
+                case MODIFIED:
+                    if (change.getOldIndex() == change.getNewIndex()) {
+                        items.set(change.getNewIndex(), changed.get(i));
+                    } else {
+                        items.remove(change.getOldIndex());
+                        items.add(change.getNewIndex(), changed.get(i));
+                    }
+                    break;
+                case REMOVED:
+                    items.remove(change.getOldIndex());
+                    break;
+            }
+        }
+    }
+
+    // The first change after a quiet spell is shown at once, later ones wait for the rest of the throttle window
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        long wait = lastFlushAt + THROTTLE_MS - SystemClock.uptimeMillis();
+        handler.postDelayed(flush, Math.max(0, wait));
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        lastFlushAt = SystemClock.uptimeMillis();
+        listener.onFeedChanged(new ArrayList<>(items));
+    }
+}
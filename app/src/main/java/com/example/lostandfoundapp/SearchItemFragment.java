@@ -2,13 +2,18 @@ package com.example.lostandfoundapp;
 
 import android.Manifest;
 import android.app.Activity;
+import android.content.ContentResolver;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
+import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -25,46 +30,66 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-
-import org.tensorflow.lite.DataType;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 public class SearchItemFragment extends Fragment {
 
     private static final int PICK_IMAGE_REQUEST = 1;
     private static final int CAPTURE_IMAGE_REQUEST = 2;
     private static final int PERMISSION_REQUEST_CODE = 100;
-    private static final int IMAGE_SIZE = 224; // Adjust this based on your model's input size
-    private Uri imageUri;
+    private static final int LOCATION_PERMISSION_REQUEST = 101;
+    private SearchViewModel state; // Results, paging and the classified photo, kept across rotation
     private EditText searchQuery;
     private ProgressBar progressBar;
     private RecyclerView recyclerView;
     private FirebaseFirestore db;
     private ItemAdapter itemAdapter;
-    private List<Item> itemList;
-
-    // TensorFlow Lite model and labels
-    private Interpreter tflite;
-    private List<String> labels;
+    private RecentFeed recentFeed; // Listening only while the feed is shown on screen
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // New elements for displaying TensorFlow results and submitting search
     private TextView labelResults;
     private Button submitImageSearchButton;
+    private InferenceScheduler.InferenceJob<ClassificationResult> pendingClassification;
+    private static final int SIMILAR_RESULTS_LIMIT = 20;
+    private static final int TEXT_RESULTS_LIMIT = 50;
+    private static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5; // Rows from the end at which the next page is requested
+    private static final int PRELOAD_ROWS = 10; // Thumbnails fetched ahead of the scroll
+    private static final double NEARBY_RADIUS_METERS = 250;
+    private static final int NEARBY_RANGE_LIMIT = 100; // Documents read per geohash range, however dense the area
+    private static final int FEED_SIZE = 30;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        state = new ViewModelProvider(this).get(SearchViewModel.class);
+        // The live camera screen returns its smoothed label and scores, which are searched like a photo's
+        getParentFragmentManager().setFragmentResultListener(LiveClassifyFragment.RESULT_KEY, this, (key, result) -> {
+            cancelPendingClassification();
+            state.detectedEmbedding = result.getFloatArray(LiveClassifyFragment.RESULT_SCORES);
+            state.detectedImageHash = null;
+            setDetectedLabel(result.getString(LiveClassifyFragment.RESULT_LABEL));
+            submitImageSearch();
+        });
+    }
 
     @Nullable
     @Override
@@ -76,29 +101,79 @@ public class SearchItemFragment extends Fragment {
         Button searchButton = view.findViewById(R.id.searchButton);
         Button captureImageButton = view.findViewById(R.id.captureImageButton);
         Button uploadImageButton = view.findViewById(R.id.uploadImageButton);
+        Button liveCameraButton = view.findViewById(R.id.liveCameraButton);
+        Button nearbyButton = view.findViewById(R.id.nearbyButton);
+        Button recentButton = view.findViewById(R.id.recentButton);
         labelResults = view.findViewById(R.id.labelResults);
         submitImageSearchButton = view.findViewById(R.id.submitImageSearchButton);
         progressBar = view.findViewById(R.id.progressBar);
         recyclerView = view.findViewById(R.id.recyclerView);
 
-        itemList = new ArrayList<>();
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        itemAdapter = new ItemAdapter(itemList, getContext());
+        itemAdapter = new ItemAdapter(getContext());
         recyclerView.setAdapter(itemAdapter);
+        recyclerView.addOnScrollListener(itemAdapter.createPreloader(PRELOAD_ROWS));
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) rv.getLayoutManager();
+                if (layoutManager.findLastVisibleItemPosition() >= itemAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPages(false);
+                }
+            }
+        });
 
         searchButton.setOnClickListener(v -> searchByText());
         captureImageButton.setOnClickListener(v -> checkPermissionsAndCapture());
         uploadImageButton.setOnClickListener(v -> openFileChooser());
+        liveCameraButton.setOnClickListener(v -> openLiveCamera());
+        nearbyButton.setOnClickListener(v -> searchNearby());
+        recentButton.setOnClickListener(v -> showRecentFeed());
         submitImageSearchButton.setOnClickListener(v -> submitImageSearch());
 
-        // Initialize TensorFlow Lite model and labels
-        tflite = ((MyApplication) getActivity().getApplication()).getTflite();
-        labels = ((MyApplication) getActivity().getApplication()).getLabels();
-        if (labels != null && !labels.isEmpty()) {
-            Log.d("SearchItemFragment", "Labels loaded successfully: " + labels.toString());
-        } else {
-            Log.e("SearchItemFragment", "Labels failed to load or are empty.");
+        // After a rotation the last search and photo are shown again, not re-run
+        itemAdapter.setItemList(state.results);
+        attachQueries();
+        if (!state.activeQueries.isEmpty()) {
+            showMergedResults(); // Includes pages that arrived while there was no view
+            if (state.pendingPages > 0) {
+                progressBar.setVisibility(View.VISIBLE);
+            }
         }
+        recentFeed = new RecentFeed(db, FEED_SIZE, new RecentFeed.Listener() {
+            @Override
+            public void onFeedChanged(List<Item> items) {
+                displaySearchResults(items);
+            }
+
+            @Override
+            public void onFeedError(Exception e) {
+                if (getView() != null) {
+                    Toast.makeText(getContext(), "Recent items unavailable", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        if (state.detectedLabel != null) {
+            setDetectedLabel(state.detectedLabel);
+        }
+
+        // Retries loading if it failed earlier; a no-op while the model is loading or ready
+        ((MyApplication) getActivity().getApplication()).getModelManager().startLoading();
+
+        // Build the local search indexes early so text search can answer without a network round trip
+        ((MyApplication) getActivity().getApplication()).getItemRepository().ensureLoaded(new ItemRepository.LoadCallback() {
+            @Override
+            public void onLoaded() {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Text search falls back to Firestore queries
+            }
+        });
 
         return view;
     }
@@ -118,9 +193,9 @@ public class SearchItemFragment extends Fragment {
         if (intent.resolveActivity(getActivity().getPackageManager()) != null) {
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
             File imageFile = new File(getActivity().getExternalFilesDir(Environment.DIRECTORY_PICTURES), "JPEG_" + timeStamp + ".jpg");
-            imageUri = FileProvider.getUriForFile(getContext(), getActivity().getPackageName() + ".provider", imageFile);
+            state.imageUri = FileProvider.getUriForFile(getContext(), getActivity().getPackageName() + ".provider", imageFile);
 
-            intent.putExtra(MediaStore.EXTRA_OUTPUT, imageUri);
+            intent.putExtra(MediaStore.EXTRA_OUTPUT, state.imageUri);
             intent.addFlags(Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
 
             Log.d("SearchItemFragment", "Starting camera intent");
@@ -131,6 +206,15 @@ public class SearchItemFragment extends Fragment {
         }
     }
 
+    private void openLiveCamera() {
+        // Added over this fragment rather than replacing it, so the search screen is kept for the return
+        getParentFragmentManager().beginTransaction()
+                .hide(this)
+                .add(R.id.fragmentContainer, new LiveClassifyFragment())
+                .addToBackStack(null)
+                .commit();
+    }
+
     private void openFileChooser() {
         Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
         startActivityForResult(intent, PICK_IMAGE_REQUEST);
@@ -141,7 +225,7 @@ public class SearchItemFragment extends Fragment {
         super.onActivityResult(requestCode, resultCode, data);
         if (resultCode == Activity.RESULT_OK) {
             if (requestCode == PICK_IMAGE_REQUEST && data != null) {
-                imageUri = data.getData();
+                state.imageUri = data.getData();
                 labelAndDisplayResults();
             } else if (requestCode == CAPTURE_IMAGE_REQUEST) {
                 labelAndDisplayResults();
@@ -150,31 +234,85 @@ public class SearchItemFragment extends Fragment {
     }
 
     private void labelAndDisplayResults() {
-        if (imageUri != null) {
-            try {
-                Bitmap bitmap = MediaStore.Images.Media.getBitmap(getContext().getContentResolver(), imageUri);
-                Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, IMAGE_SIZE, IMAGE_SIZE, false);
-                String tfLiteLabel = classifyImage(resizedBitmap);
-
-                if (tfLiteLabel != null && !tfLiteLabel.isEmpty()) {
-                    labelResults.setText("Detected Label: " + tfLiteLabel.trim()); // Display the label result
-                    labelResults.setVisibility(View.VISIBLE);
-                } else {
-                    Toast.makeText(getContext(), "No labels detected", Toast.LENGTH_SHORT).show();
+        if (state.imageUri != null) {
+            progressBar.setVisibility(View.VISIBLE);
+            // On a cold start the model may still be loading, wait for it instead of failing
+            ((MyApplication) getActivity().getApplication()).getModelManager().whenReady(new ModelManager.ReadyCallback() {
+                @Override
+                public void onReady(InferenceScheduler scheduler) {
+                    if (getView() != null) {
+                        lookUpOrClassify(scheduler.getModelSpec());
+                    }
                 }
 
-            } catch (IOException e) {
-                Toast.makeText(getContext(), "Error processing image", Toast.LENGTH_SHORT).show();
-                progressBar.setVisibility(View.GONE);
-            }
+                @Override
+                public void onFailed(Exception e) {
+                    if (getView() != null) {
+                        Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                        progressBar.setVisibility(View.GONE);
+                    }
+                }
+            });
         } else {
             Toast.makeText(getContext(), "No Image Selected", Toast.LENGTH_SHORT).show();
         }
     }
 
+    // A photo classified before, by content, is shown from the ClassificationCache without decoding it
+    private void lookUpOrClassify(ModelSpec spec) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        ContentResolver resolver = getContext().getContentResolver();
+        Uri uri = state.imageUri;
+        String modelHash = app.getModelManager().getModelHash();
+        app.getIoExecutor().execute(() -> {
+            String contentHash = ClassificationCache.hashContent(resolver, uri);
+            ClassificationCache.Entry cached = app.getClassificationCache().get(contentHash, modelHash);
+            mainHandler.post(() -> {
+                if (getView() == null || !uri.equals(state.imageUri)) {
+                    return; // Another photo was picked meanwhile
+                }
+                if (cached != null) {
+                    cancelPendingClassification();
+                    state.detectedImageHash = cached.imageHash;
+                    progressBar.setVisibility(View.GONE);
+                    showDetectedLabel(cached.result);
+                } else {
+                    decodeAndClassify(spec, contentHash);
+                }
+            });
+        });
+    }
+
+    // contentHash is what the result is cached under, null to not cache it
+    private void decodeAndClassify(ModelSpec spec, String contentHash) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        new BitmapDecoder(getContext().getContentResolver(), app.getBitmapPool())
+                .decodeAsync(state.imageUri, spec.getInputWidth(), spec.getInputHeight(), app.getIoExecutor(), new BitmapDecoder.Callback() {
+                    @Override
+                    public void onDecoded(Bitmap bitmap) {
+                        if (getView() == null) {
+                            app.getBitmapPool().put(bitmap);
+                            return;
+                        }
+                        classifyImage(bitmap, contentHash);
+                    }
+
+                    @Override
+                    public void onError(IOException e) {
+                        Log.e("SearchItemFragment", "Error processing image", e);
+                        if (getView() != null) {
+                            Toast.makeText(getContext(), "Error processing image", Toast.LENGTH_SHORT).show();
+                            progressBar.setVisibility(View.GONE);
+                        }
+                    }
+                });
+    }
+
     private void submitImageSearch() {
-        String detectedLabel = labelResults.getText().toString().replace("Detected Label: ", "").trim();
-        if (!detectedLabel.isEmpty()) {
+        String detectedLabel = state.detectedLabel != null ? state.detectedLabel.trim() : "";
+        if (state.detectedEmbedding != null) {
+            searchBySimilarity(state.detectedEmbedding, detectedLabel);
+        } else if (!detectedLabel.isEmpty()) {
             List<String> labelsToSearch = new ArrayList<>();
             labelsToSearch.add(detectedLabel);
             searchByLabels(labelsToSearch);
@@ -183,142 +321,391 @@ public class SearchItemFragment extends Fragment {
         }
     }
 
-    private String classifyImage(Bitmap image) {
-        try {
-            if (labels == null || labels.isEmpty()) {
-                throw new NullPointerException("Labels not initialized.");
+    // Ranks items by how close their stored embedding is to the picked image, using the local index
+    private void searchBySimilarity(float[] embedding, String fallbackLabel) {
+        ItemRepository repository = ((MyApplication) getActivity().getApplication()).getItemRepository();
+        progressBar.setVisibility(View.VISIBLE);
+        repository.ensureLoaded(new ItemRepository.LoadCallback() {
+            @Override
+            public void onLoaded() {
+                if (getView() == null) {
+                    return;
+                }
+                stopPagedSearch();
+                progressBar.setVisibility(View.GONE);
+                // Copies of this exact photo first, then items the model thinks look alike
+                SearchResultMerger<Item> merger = new SearchResultMerger<>(Item::getId);
+                if (state.detectedImageHash != null) {
+                    merger.addAll(repository.findByImageHash(state.detectedImageHash, PerceptualHash.SAME_IMAGE_DISTANCE));
+                }
+                merger.addAll(repository.findSimilar(embedding, SIMILAR_RESULTS_LIMIT));
+                List<Item> results = new ArrayList<>(merger.getResults());
+                if (!results.isEmpty()) {
+                    displaySearchResults(results);
+                } else {
+                    // Items saved before embeddings existed can still be found by label
+                    List<String> labelsToSearch = new ArrayList<>();
+                    labelsToSearch.add(fallbackLabel);
+                    searchByLabels(labelsToSearch);
+                }
             }
 
-            TensorBuffer inputFeature0 = TensorBuffer.createFixedSize(new int[]{1, IMAGE_SIZE, IMAGE_SIZE, 3}, DataType.FLOAT32);
-            ByteBuffer byteBuffer = ByteBuffer.allocateDirect(4 * IMAGE_SIZE * IMAGE_SIZE * 3);
-            byteBuffer.order(ByteOrder.nativeOrder());
-
-            int[] intValues = new int[IMAGE_SIZE * IMAGE_SIZE];
-            image.getPixels(intValues, 0, image.getWidth(), 0, 0, image.getWidth(), image.getHeight());
-
-            int pixel = 0;
-            for (int i = 0; i < IMAGE_SIZE; i++) {
-                for (int j = 0; j < IMAGE_SIZE; j++) {
-                    int val = intValues[pixel++];
-                    byteBuffer.putFloat(((val >> 16) & 0xFF) * (1.f / 255.f));
-                    byteBuffer.putFloat(((val >> 8) & 0xFF) * (1.f / 255.f));
-                    byteBuffer.putFloat((val & 0xFF) * (1.f / 255.f));
+            @Override
+            public void onError(Exception e) {
+                if (getView() != null) {
+                    progressBar.setVisibility(View.GONE);
+                    Toast.makeText(getContext(), "Search by image failed", Toast.LENGTH_SHORT).show();
                 }
             }
+        });
+    }
 
-            inputFeature0.loadBuffer(byteBuffer);
+    private void classifyImage(Bitmap image, String contentHash) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        InferenceScheduler scheduler = app.getInferenceScheduler();
+        if (scheduler == null) {
+            Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+            progressBar.setVisibility(View.GONE);
+            return;
+        }
 
-            TensorBuffer outputFeature0 = TensorBuffer.createFixedSize(new int[]{1, labels.size()}, DataType.FLOAT32);
-            tflite.run(inputFeature0.getBuffer(), outputFeature0.getBuffer());
+        // Only the latest picked image matters, drop any classification still pending
+        cancelPendingClassification();
+        state.detectedEmbedding = null;
+        state.detectedImageHash = BitmapHash.dHash(image);
+        progressBar.setVisibility(View.VISIBLE);
+        pendingClassification = scheduler.classify(InferenceScheduler.PRIORITY_INTERACTIVE, image,
+                new InferenceScheduler.Callback<ClassificationResult>() {
+                    @Override
+                    public void onResult(ClassificationResult result) {
+                        pendingClassification = null;
+                        app.getBitmapPool().put(image); // Only the scores are kept
+                        progressBar.setVisibility(View.GONE);
+                        if (contentHash != null) {
+                            app.getClassificationCache().put(contentHash, scheduler.getModelHash(), result, state.detectedImageHash);
+                        }
+                        showDetectedLabel(result);
+                    }
 
-            float[] confidences = outputFeature0.getFloatArray();
-            int maxPos = 0;
-            float maxConfidence = 0;
-            for (int i = 0; i < confidences.length; i++) {
-                if (confidences[i] > maxConfidence) {
-                    maxConfidence = confidences[i];
-                    maxPos = i;
-                }
-            }
+                    @Override
+                    public void onError(Exception e) {
+                        pendingClassification = null;
+                        app.getBitmapPool().put(image);
+                        progressBar.setVisibility(View.GONE);
+                        Log.e("ModelError", "Error running TensorFlow Lite model", e);
+                        Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
 
-            // Extract the label without the preceding number
-            String labelWithNumber = labels.get(maxPos).trim().toLowerCase();
-            String[] labelParts = labelWithNumber.split(" ", 2); // Split by first space
-            return labelParts.length > 1 ? labelParts[1] : labelParts[0]; // Return only the class name
+    private void showDetectedLabel(ClassificationResult result) {
+        if (!result.getName().isEmpty()) {
+            state.detectedEmbedding = result.getScores();
+            setDetectedLabel(result.getName());
+        } else {
+            Toast.makeText(getContext(), "No labels detected", Toast.LENGTH_SHORT).show();
+        }
+    }
 
-        } catch (Exception e) {
-            Log.e("ModelError", "Error running TensorFlow Lite model", e);
-            Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
-            return null;
+    private void setDetectedLabel(String label) {
+        state.detectedLabel = label;
+        labelResults.setText("Detected Label: " + label); // Display the label result
+        labelResults.setVisibility(View.VISIBLE);
+    }
+
+    private void cancelPendingClassification() {
+        if (pendingClassification != null) {
+            pendingClassification.cancel();
+            pendingClassification = null;
+        }
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        updateFeedListener();
+    }
+
+    @Override
+    public void onStop() {
+        recentFeed.stop();
+        super.onStop();
+    }
+
+    // Tabs are shown and hidden rather than stopped, and the live camera hides this screen too
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        updateFeedListener();
+    }
+
+    @Override
+    public void onDestroyView() {
+        cancelPendingClassification();
+        state.detachQueries();
+        recentFeed.stop();
+        super.onDestroyView();
+    }
+
+    private void showRecentFeed() {
+        if (state.showingFeed && recentFeed.isStarted()) {
+            return; // Already live; restarting would read the whole feed again
+        }
+        stopPagedSearch();
+        progressBar.setVisibility(View.GONE);
+        state.showingFeed = true;
+        updateFeedListener();
+    }
+
+    // The snapshot listener only runs while its results are on screen, so a hidden or stopped screen reads nothing
+    private void updateFeedListener() {
+        if (state.showingFeed && getView() != null && !isHidden()) {
+            recentFeed.start();
+        } else {
+            recentFeed.stop();
         }
     }
 
+    // Every search replaces the feed until it is asked for again
+    private void leaveRecentFeed() {
+        state.showingFeed = false;
+        recentFeed.stop();
+    }
 
     private void searchByText() {
         String query = searchQuery.getText().toString().trim().toLowerCase(); // Normalize to lowercase
         if (!query.isEmpty()) {
-            progressBar.setVisibility(View.VISIBLE);
+            // Fuzzy, partial-word search over the local copy once it is loaded
+            ItemRepository repository = ((MyApplication) getActivity().getApplication()).getItemRepository();
+            if (repository.isLoaded()) {
+                stopPagedSearch();
+                progressBar.setVisibility(View.GONE);
+                displaySearchResults(repository.searchText(query, TEXT_RESULTS_LIMIT));
+                return;
+            }
 
-            // Query by name, category, and labels
-            db.collection("items")
+            // Query by name, category, and labels at the same time, newest first.
+            // Range filters need their own field ordered first, so those two order by it before dateAdded.
+            QueryCache cache = ((MyApplication) getActivity().getApplication()).getQueryCache();
+            List<PagedQuery> queries = new ArrayList<>();
+            queries.add(new PagedQuery(db.collection("items")
                     .whereGreaterThanOrEqualTo("name", query)
                     .whereLessThanOrEqualTo("name", query + "\uf8ff")
-                    .get()
-                    .addOnCompleteListener(taskName -> {
-                        List<Item> results = new ArrayList<>();
-                        if (taskName.isSuccessful()) {
-                            for (QueryDocumentSnapshot document : taskName.getResult()) {
-                                results.add(document.toObject(Item.class));
-                            }
-                        }
-
-                        // Continue with category search
-                        db.collection("items")
-                                .whereGreaterThanOrEqualTo("category", query)
-                                .whereLessThanOrEqualTo("category", query + "\uf8ff")
-                                .get()
-                                .addOnCompleteListener(taskCategory -> {
-                                    if (taskCategory.isSuccessful()) {
-                                        for (QueryDocumentSnapshot document : taskCategory.getResult()) {
-                                            Item item = document.toObject(Item.class);
-                                            if (!results.contains(item)) { // Avoid duplicates
-                                                results.add(item);
-                                            }
-                                        }
-                                    }
-
-                                    // Continue with labels search
-                                    db.collection("items")
-                                            .whereArrayContains("labels", query)
-                                            .get()
-                                            .addOnCompleteListener(taskLabels -> {
-                                                progressBar.setVisibility(View.GONE);
-                                                if (taskLabels.isSuccessful()) {
-                                                    for (QueryDocumentSnapshot document : taskLabels.getResult()) {
-                                                        Item item = document.toObject(Item.class);
-                                                        if (!results.contains(item)) { // Avoid duplicates
-                                                            results.add(item);
-                                                        }
-                                                    }
-                                                    displaySearchResults(results);
-                                                } else {
-                                                    Log.e("SearchItemFragment", "Error getting documents: ", taskLabels.getException());
-                                                    Toast.makeText(getContext(), "Search by labels failed", Toast.LENGTH_SHORT).show();
-                                                }
-                                            });
-                                });
-                    });
+                    .orderBy("name")
+                    .orderBy("dateAdded", Query.Direction.DESCENDING), PAGE_SIZE, cache, "name:" + query));
+            queries.add(new PagedQuery(db.collection("items")
+                    .whereGreaterThanOrEqualTo("category", query)
+                    .whereLessThanOrEqualTo("category", query + "\uf8ff")
+                    .orderBy("category")
+                    .orderBy("dateAdded", Query.Direction.DESCENDING), PAGE_SIZE, cache, "category:" + query));
+            queries.add(new PagedQuery(db.collection("items")
+                    .whereArrayContains("labels", query)
+                    .orderBy("dateAdded", Query.Direction.DESCENDING), PAGE_SIZE, cache, "label:" + query));
+            startPagedSearch(queries, "Search failed");
         } else {
             Toast.makeText(getContext(), "Please enter a search query", Toast.LENGTH_SHORT).show();
         }
     }
 
 
-    private void searchByLabels(List<String> labels) {
-        if (labels != null && !labels.isEmpty()) {
-            progressBar.setVisibility(View.VISIBLE);
+    private void searchNearby() {
+        if (!CurrentLocation.hasPermission(getContext())) {
+            requestPermissions(CurrentLocation.PERMISSIONS, LOCATION_PERMISSION_REQUEST);
+            return;
+        }
+        progressBar.setVisibility(View.VISIBLE);
+        CurrentLocation.get(getContext(), new CurrentLocation.Callback() {
+            @Override
+            public void onLocation(Location location) {
+                if (getView() != null) {
+                    searchNear(location.getLatitude(), location.getLongitude(), NEARBY_RADIUS_METERS);
+                }
+            }
+
+            @Override
+            public void onUnavailable() {
+                if (getView() != null) {
+                    progressBar.setVisibility(View.GONE);
+                    Toast.makeText(getContext(), "Location unavailable", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
+    // One range query per geohash range around the point, each on the single-field geohash index and capped at
+    // NEARBY_RANGE_LIMIT, so the reads depend on the radius, not the collection. Items without a location have
+    // no geohash and never match. The ranges reach a little past the radius, so results are filtered by exact
+    // distance and shown nearest first.
+    private void searchNear(double latitude, double longitude, double radiusMeters) {
+        stopPagedSearch();
+        int generation = state.searchGeneration;
+        List<GeoHash.Range> ranges = GeoHash.covering(latitude, longitude, radiusMeters);
+        List<Item> found = new ArrayList<>();
+        int[] pending = {ranges.size()};
+        int[] failed = new int[1];
+        progressBar.setVisibility(View.VISIBLE);
+        for (GeoHash.Range range : ranges) {
+            long start = Metrics.start();
             db.collection("items")
-                    .whereArrayContainsAny("labels", labels)  // Assuming Firestore stores labels as arrays
+                    .orderBy("geohash")
+                    .startAt(range.start)
+                    .endAt(range.end)
+                    .limit(NEARBY_RANGE_LIMIT)
                     .get()
                     .addOnCompleteListener(task -> {
-                        progressBar.setVisibility(View.GONE);
+                        if (generation != state.searchGeneration || getView() == null) {
+                            return; // A newer search has started
+                        }
                         if (task.isSuccessful()) {
-                            List<Item> itemList = new ArrayList<>();
-                            for (QueryDocumentSnapshot document : task.getResult()) {
-                                itemList.add(document.toObject(Item.class));
+                            Metrics.record(Metrics.Stage.FIRESTORE_QUERY, start);
+                            QuerySnapshot snapshot = task.getResult();
+                            if (snapshot.size() >= NEARBY_RANGE_LIMIT) {
+                                Log.w("SearchItemFragment", "Nearby range " + range + " was cut off at " + NEARBY_RANGE_LIMIT);
                             }
-                            displaySearchResults(itemList);
+                            found.addAll(PagedQuery.readItems(snapshot));
+                        } else {
+                            Log.e("SearchItemFragment", "Error getting nearby documents: ", task.getException());
+                            failed[0]++;
+                        }
+                        if (--pending[0] > 0) {
+                            return;
+                        }
+                        progressBar.setVisibility(View.GONE);
+                        if (failed[0] == ranges.size()) {
+                            Toast.makeText(getContext(), "Nearby search failed", Toast.LENGTH_SHORT).show();
                         } else {
-                            Log.e("SearchItemFragment", "Error getting documents: ", task.getException());
-                            Toast.makeText(getContext(), "Search by image failed", Toast.LENGTH_SHORT).show();
+                            displaySearchResults(nearestFirst(found, latitude, longitude, radiusMeters));
                         }
                     });
+        }
+    }
+
+    private static List<Item> nearestFirst(List<Item> items, double latitude, double longitude, double radiusMeters) {
+        Map<Item, Double> distances = new HashMap<>();
+        List<Item> nearby = new ArrayList<>();
+        for (Item item : items) {
+            if (!item.hasLocation()) {
+                continue;
+            }
+            double distance = GeoHash.distanceMeters(latitude, longitude, item.getLatitude(), item.getLongitude());
+            if (distance <= radiusMeters) {
+                distances.put(item, distance);
+                nearby.add(item);
+            }
+        }
+        Collections.sort(nearby, (a, b) -> Double.compare(distances.get(a), distances.get(b)));
+        return nearby;
+    }
+
+    private void searchByLabels(List<String> labels) {
+        if (labels != null && !labels.isEmpty()) {
+            // The label set is the cache key, so order and repeats don't matter
+            List<String> key = new ArrayList<>(new TreeSet<>(labels));
+            QueryCache cache = ((MyApplication) getActivity().getApplication()).getQueryCache();
+            List<PagedQuery> queries = new ArrayList<>();
+            queries.add(new PagedQuery(db.collection("items")
+                    .whereArrayContainsAny("labels", labels)  // Assuming Firestore stores labels as arrays
+                    .orderBy("dateAdded", Query.Direction.DESCENDING), PAGE_SIZE, cache, "anyLabel:" + TextUtils.join(",", key)));
+            startPagedSearch(queries, "Search by image failed");
         } else {
             Toast.makeText(getContext(), "No labels found for image", Toast.LENGTH_SHORT).show();
         }
     }
 
+    // Shows the first page of every query as it arrives; later pages load as the list nears its end.
+    // Cached pages show at once, and a page refreshed from the server afterwards only changes the rows that differ.
+    private void startPagedSearch(List<PagedQuery> queries, String failureMessage) {
+        leaveRecentFeed();
+        state.detachQueries();
+        state.searchGeneration++;
+        state.activeQueries = queries;
+        state.pagedSearchFailureMessage = failureMessage;
+        state.pendingPages = 0;
+        attachQueries();
+        loadNextPages(true);
+    }
+
+    // Points the queries' revalidation and page rounds at this fragment; they are detached again with its view
+    private void attachQueries() {
+        for (PagedQuery query : state.activeQueries) {
+            query.setRevalidationListener(q -> {
+                if (getView() != null) {
+                    showMergedResults();
+                }
+            });
+        }
+        state.roundListener = new SearchViewModel.RoundListener() {
+            @Override
+            public void onPageLoaded() {
+                showMergedResults();
+            }
+
+            @Override
+            public void onRoundFinished(boolean allFailed, boolean firstRound) {
+                progressBar.setVisibility(View.GONE);
+                if (allFailed) {
+                    Toast.makeText(getContext(), state.pagedSearchFailureMessage, Toast.LENGTH_SHORT).show();
+                } else if (firstRound && state.hasNoResults()) {
+                    displaySearchResults(new ArrayList<>()); // The previous search's rows must not linger
+                }
+            }
+        };
+    }
+
+    // Re-merges every loaded page; duplicates across the queries are removed by document id
+    private void showMergedResults() {
+        SearchResultMerger<Item> merger = new SearchResultMerger<>(Item::getId);
+        for (PagedQuery query : state.activeQueries) {
+            merger.addAll(query.getItems());
+        }
+        displaySearchResults(new ArrayList<>(merger.getResults()));
+    }
+
+    private void stopPagedSearch() {
+        leaveRecentFeed();
+        state.detachQueries();
+        state.searchGeneration++; // Late pages from the old search are ignored
+        state.activeQueries = new ArrayList<>();
+        state.pendingPages = 0;
+    }
+
+    private void loadNextPages(boolean firstPage) {
+        if (state.pendingPages > 0) {
+            return; // Still waiting for the current round of pages
+        }
+        List<PagedQuery> toLoad = new ArrayList<>();
+        for (PagedQuery query : state.activeQueries) {
+            if (query.hasMore() && !query.isLoading()) {
+                toLoad.add(query);
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return;
+        }
+
+        // The callbacks report to the ViewModel, not this fragment, which a rotation may have replaced
+        SearchViewModel model = state;
+        int generation = model.searchGeneration;
+        model.startRound(toLoad.size(), firstPage);
+        progressBar.setVisibility(View.VISIBLE);
+        for (PagedQuery query : toLoad) {
+            query.loadNextPage(new PagedQuery.PageCallback() {
+                @Override
+                public void onPage(List<Item> items, boolean hasMore) {
+                    model.pageFinished(generation, !items.isEmpty(), false);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e("SearchItemFragment", "Error getting documents: ", e);
+                    model.pageFinished(generation, false, true);
+                }
+            });
+        }
+    }
+
     private void displaySearchResults(List<Item> itemList) {
+        state.results = itemList;
         itemAdapter.setItemList(itemList);
     }
 
@@ -331,6 +718,12 @@ public class SearchItemFragment extends Fragment {
             } else {
                 Toast.makeText(getContext(), "Permission denied", Toast.LENGTH_SHORT).show();
             }
+        } else if (requestCode == LOCATION_PERMISSION_REQUEST) {
+            if (CurrentLocation.hasPermission(getContext())) {
+                searchNearby();
+            } else {
+                Toast.makeText(getContext(), "Permission denied", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 }
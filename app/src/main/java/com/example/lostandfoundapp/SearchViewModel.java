@@ -0,0 +1,87 @@
+package com.example.lostandfoundapp;
+
+import android.net.Uri;
+
+import androidx.lifecycle.ViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Search screen state that outlives the fragment's views. Survives rotation, so a search is shown again
+// instead of re-run, and its paging cursors carry on where they were. Main thread only.
+public class SearchViewModel extends ViewModel {
+
+    Uri imageUri;
+    String detectedLabel; // Shown under the photo buttons; null until a photo or live label was classified
+    float[] detectedEmbedding; // Output vector of the last classified image
+    Long detectedImageHash; // Perceptual hash of the last classified image, null for live camera results
+
+    List<Item> results = new ArrayList<>(); // What the list shows; never modified, only replaced
+
+    // Firestore queries of the current paged search; more pages load as the list scrolls
+    List<PagedQuery> activeQueries = new ArrayList<>();
+    String pagedSearchFailureMessage;
+    int searchGeneration; // Bumped per search so late pages from an older one are ignored
+
+    // The round of pages loading now. Counted here with the queries, so a round that finishes during a
+    // rotation still completes and is reported to whichever fragment is attached.
+    interface RoundListener {
+        void onPageLoaded();
+
+        void onRoundFinished(boolean allFailed, boolean firstRound);
+    }
+
+    int pendingPages;
+    private int requestedPages;
+    private int failedPages;
+    private boolean firstRound;
+    RoundListener roundListener; // The fragment showing the results, null while it has no view
+    boolean showingFeed = true; // The list shows the live recent feed until a search replaces it
+
+    void startRound(int pages, boolean first) {
+        pendingPages = pages;
+        requestedPages = pages;
+        failedPages = 0;
+        firstRound = first;
+    }
+
+    void pageFinished(int generation, boolean hasItems, boolean failed) {
+        if (generation != searchGeneration) {
+            return; // A newer search has started
+        }
+        if (failed) {
+            failedPages++;
+        } else if (hasItems && roundListener != null) {
+            roundListener.onPageLoaded();
+        }
+        if (--pendingPages > 0) {
+            return;
+        }
+        if (roundListener != null) {
+            roundListener.onRoundFinished(failedPages == requestedPages, firstRound);
+        }
+    }
+
+    // Whether the current search has found nothing so far; results of an older search don't count
+    boolean hasNoResults() {
+        for (PagedQuery query : activeQueries) {
+            if (!query.getItems().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The listeners point at a fragment, which must not outlive its screen
+    void detachQueries() {
+        roundListener = null;
+        for (PagedQuery query : activeQueries) {
+            query.setRevalidationListener(null);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        detachQueries();
+    }
+}
@@ -2,18 +2,24 @@ package com.example.lostandfoundapp;
 
 import android.Manifest;
 import android.app.Activity;
+import android.content.ClipData;
+import android.content.ContentResolver;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
+import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
@@ -22,81 +28,91 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 
+import com.bumptech.glide.Glide;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
-import org.tensorflow.lite.DataType;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class UploadItemFragment extends Fragment {
 
     private static final int PICK_IMAGE_REQUEST = 1;
     private static final int CAPTURE_IMAGE_REQUEST = 2;
+    private static final int BULK_PICK_REQUEST = 3;
     private static final int PERMISSION_REQUEST_CODE = 100;
-    private static final int IMAGE_SIZE = 224; // Adjust this based on your model's input size
-    private Uri imageUri;
-    private Bitmap resizedBitmap; // Store resized bitmap
+    private static final int LOCATION_PERMISSION_REQUEST = 101;
+    private UploadViewModel state; // Selected photo, kept across rotation
     private ImageView imageView;
     private EditText itemName, itemCategory;
+    private CheckBox attachLocation;
     private TextView uploadStatus, labelResults;
     private ProgressBar progressBar;
-    private FirebaseFirestore db;
-    private StorageReference storageRef;
+    private InferenceScheduler.InferenceJob<ClassificationResult> pendingClassification;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean checkingDuplicates;
+    private BulkClassifier bulkClassifier; // Non-null while a bulk intake is running
 
-    // TensorFlow Lite model and labels
-    private Interpreter tflite;
-    private List<String> labels;
+    private interface LocationConsumer {
+        void accept(Location location);
+    }
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        state = new ViewModelProvider(this).get(UploadViewModel.class);
+    }
 
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_upload, container, false);
 
-        db = FirebaseFirestore.getInstance();
-        storageRef = FirebaseStorage.getInstance().getReference();
-
         imageView = view.findViewById(R.id.itemImage);
+        if (state.resizedBitmap != null) {
+            imageView.setImageBitmap(state.resizedBitmap); // Selected before a rotation
+        } else if (state.cachedClassification != null) {
+            showPreview(state.imageUri);
+        }
         itemName = view.findViewById(R.id.itemName);
         itemCategory = view.findViewById(R.id.itemCategory);
+        attachLocation = view.findViewById(R.id.attachLocation);
         uploadStatus = view.findViewById(R.id.uploadStatus);
         labelResults = view.findViewById(R.id.labelResults);
         progressBar = view.findViewById(R.id.progressBar);
         Button btnUploadImage = view.findViewById(R.id.buttonUploadImage);
         Button btnCaptureImage = view.findViewById(R.id.buttonCaptureImage);
         Button btnSubmit = view.findViewById(R.id.buttonSubmit);
+        Button btnBulkIntake = view.findViewById(R.id.buttonBulkIntake);
 
         btnUploadImage.setOnClickListener(v -> openFileChooser());
         btnCaptureImage.setOnClickListener(v -> checkPermissionsAndCapture());
+        btnBulkIntake.setOnClickListener(v -> openBulkChooser());
+        attachLocation.setOnCheckedChangeListener((button, checked) -> {
+            if (checked && !CurrentLocation.hasPermission(getContext())) {
+                requestPermissions(CurrentLocation.PERMISSIONS, LOCATION_PERMISSION_REQUEST);
+            }
+        });
         btnSubmit.setOnClickListener(v -> {
             if (validateInput()) {
-                labelAndUploadImage();
+                checkForDuplicatesAndUpload();
             }
         });
 
-        // Initialize TensorFlow Lite model and labels
-        tflite = ((MyApplication) getActivity().getApplication()).getTflite();
-        labels = ((MyApplication) getActivity().getApplication()).getLabels();
-        if (labels != null && !labels.isEmpty()) {
-            Log.d("UploadItemFragment", "Labels loaded successfully: " + labels.toString());
-        } else {
-            Log.e("UploadItemFragment", "Labels failed to load or are empty.");
-        }
+        // Retries loading if it failed earlier; a no-op while the model is loading or ready
+        ((MyApplication) getActivity().getApplication()).getModelManager().startLoading();
 
         return view;
     }
@@ -125,148 +141,463 @@ public class UploadItemFragment extends Fragment {
         startActivityForResult(intent, PICK_IMAGE_REQUEST);
     }
 
+    // Bulk intake: many photos at once, each becomes its own report named after its detected label
+    private void openBulkChooser() {
+        if (bulkClassifier != null) {
+            Toast.makeText(getContext(), "Bulk intake already running", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+        startActivityForResult(intent, BULK_PICK_REQUEST);
+    }
+
     @Override
     public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         Log.d("UploadItemFragment", "onActivityResult: requestCode = " + requestCode + ", resultCode = " + resultCode);
+        if (requestCode == BULK_PICK_REQUEST) {
+            if (resultCode == Activity.RESULT_OK && data != null) {
+                handleBulkSelection(data);
+            }
+            return;
+        }
         if (resultCode == Activity.RESULT_OK) {
-            try {
-                if (requestCode == PICK_IMAGE_REQUEST && data != null) {
-                    imageUri = data.getData();
-                } else if (requestCode == CAPTURE_IMAGE_REQUEST && data != null) {
-                    // Get the captured image as a Bitmap
-                    Bitmap capturedImage = (Bitmap) data.getExtras().get("data");
-                    if (capturedImage != null) {
-                        imageUri = Uri.parse(MediaStore.Images.Media.insertImage(getContext().getContentResolver(), capturedImage, "Captured Image", null));
-                    } else {
-                        Toast.makeText(getContext(), "Error capturing image", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
+            if (requestCode == PICK_IMAGE_REQUEST && data != null) {
+                state.imageUri = data.getData();
+            } else if (requestCode == CAPTURE_IMAGE_REQUEST && data != null) {
+                // Get the captured image as a Bitmap
+                Bitmap capturedImage = (Bitmap) data.getExtras().get("data");
+                if (capturedImage != null) {
+                    state.imageUri = Uri.parse(MediaStore.Images.Media.insertImage(getContext().getContentResolver(), capturedImage, "Captured Image", null));
+                } else {
+                    Toast.makeText(getContext(), "Error capturing image", Toast.LENGTH_SHORT).show();
+                    return;
                 }
+            }
 
-                // Load the image and resize it immediately after selection or capture
-                if (imageUri != null) {
-                    Bitmap bitmap = MediaStore.Images.Media.getBitmap(getContext().getContentResolver(), imageUri);
-                    resizedBitmap = Bitmap.createScaledBitmap(bitmap, IMAGE_SIZE, IMAGE_SIZE, false);
-                    imageView.setImageBitmap(resizedBitmap); // Display the resized image
-                }
+            // Look the photo up in the cache, or decode it straight to model size, right after selection or capture
+            if (state.imageUri != null) {
+                // On a cold start the model may still be loading; its input size is needed to decode
+                ((MyApplication) getActivity().getApplication()).getModelManager().whenReady(new ModelManager.ReadyCallback() {
+                    @Override
+                    public void onReady(InferenceScheduler scheduler) {
+                        if (getView() != null) {
+                            lookUpOrDecode(scheduler.getModelSpec());
+                        }
+                    }
 
-            } catch (IOException e) {
-                Log.e("ImageProcessingError", "Error processing image", e);
-                Toast.makeText(getContext(), "Error processing image", Toast.LENGTH_SHORT).show();
+                    @Override
+                    public void onFailed(Exception e) {
+                        if (getView() != null) {
+                            Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
             }
         }
     }
 
-    private void labelAndUploadImage() {
-        if (resizedBitmap != null) {
-            try {
-                progressBar.setVisibility(View.VISIBLE);
+    // A photo classified before, by content, is neither decoded nor classified again: the cached entry holds the
+    // label and the duplicate check's hash, and Glide shows the preview. Only a miss decodes to model size.
+    private void lookUpOrDecode(ModelSpec spec) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        ContentResolver resolver = getContext().getContentResolver();
+        Uri uri = state.imageUri;
+        String modelHash = app.getModelManager().getModelHash();
+        state.imageContentHash = null;
+        state.cachedClassification = null;
+        app.getIoExecutor().execute(() -> {
+            String contentHash = ClassificationCache.hashContent(resolver, uri);
+            ClassificationCache.Entry cached = app.getClassificationCache().get(contentHash, modelHash);
+            mainHandler.post(() -> {
+                if (getView() == null || !uri.equals(state.imageUri)) {
+                    return; // Another photo was picked meanwhile
+                }
+                state.imageContentHash = contentHash;
+                if (cached != null && cached.imageHash != null) {
+                    state.cachedClassification = cached;
+                    setResizedBitmap(null);
+                    showPreview(uri);
+                } else {
+                    decodeSelectedImage(spec);
+                }
+            });
+        });
+    }
 
-                // Run TensorFlow Lite model directly on the resized bitmap
-                String tfLiteLabel = classifyImage(resizedBitmap);
+    private void decodeSelectedImage(ModelSpec spec) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        Uri uri = state.imageUri;
+        new BitmapDecoder(getContext().getContentResolver(), app.getBitmapPool())
+                .decodeAsync(uri, spec.getInputWidth(), spec.getInputHeight(), app.getIoExecutor(), new BitmapDecoder.Callback() {
+                    @Override
+                    public void onDecoded(Bitmap bitmap) {
+                        if (getView() == null || !uri.equals(state.imageUri)) {
+                            app.getBitmapPool().put(bitmap);
+                            return;
+                        }
+                        setResizedBitmap(bitmap);
+                    }
 
-                // Extract just the label text, removing any leading numbers
-                String labelText = tfLiteLabel.replaceAll("^[0-9]+\\s+", "").toLowerCase(); // Remove numbers and trim
+                    @Override
+                    public void onError(IOException e) {
+                        Log.e("ImageProcessingError", "Error processing image", e);
+                        if (getView() != null) {
+                            Toast.makeText(getContext(), "Error processing image", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+    }
 
-                // Display the TensorFlow Lite result in the labelResults TextView
-                labelResults.setText("TensorFlow Lite Label: " + labelText);
+    // The preview of a photo that wasn't decoded, at the view's size
+    private void showPreview(Uri uri) {
+        Glide.with(this).load(uri).into(imageView);
+    }
+
+    private void setResizedBitmap(Bitmap bitmap) {
+        Bitmap previous = state.resizedBitmap;
+        state.resizedBitmap = bitmap;
+        Glide.with(this).clear(imageView); // A cached photo's preview may still be loading
+        imageView.setImageBitmap(state.resizedBitmap); // Display the resized image
+        // A queued classification may still be reading the previous bitmap, only pool it when none is
+        if (previous != null && pendingClassification == null) {
+            ((MyApplication) getActivity().getApplication()).getBitmapPool().put(previous);
+        }
+    }
+
+    // Warns before uploading a photo that is already on file; the same item is often reported more than once
+    private void checkForDuplicatesAndUpload() {
+        Long selectedHash = selectedImageHash();
+        if (selectedHash == null) {
+            updateStatus("No Image Selected", false);
+            return;
+        }
+        if (checkingDuplicates || pendingClassification != null) {
+            return; // Submit was tapped again while the first one is still running
+        }
+        long imageHash = selectedHash;
+        ItemRepository repository = ((MyApplication) getActivity().getApplication()).getItemRepository();
+        if (repository.isLoaded()) {
+            // The local index also finds near copies: re-encoded, resized or slightly cropped
+            uploadUnlessDuplicate(repository.findByImageHash(imageHash, PerceptualHash.SAME_IMAGE_DISTANCE), imageHash);
+            return;
+        }
+        // Loading the whole index for one check would hold up the upload, so look up this exact hash on its
+        // single-field index instead; that still catches the same photo being reported twice
+        checkingDuplicates = true;
+        progressBar.setVisibility(View.VISIBLE);
+        FirebaseFirestore.getInstance().collection("items")
+                .whereEqualTo("imageHash", PerceptualHash.toHex(imageHash))
+                .limit(1)
+                .get()
+                .addOnCompleteListener(task -> {
+                    checkingDuplicates = false;
+                    if (getView() == null) {
+                        return;
+                    }
+                    if (task.isSuccessful()) {
+                        uploadUnlessDuplicate(PagedQuery.readItems(task.getResult()), imageHash);
+                    } else {
+                        Log.w("UploadItemFragment", "Duplicate check failed", task.getException());
+                        labelAndUploadImage(imageHash); // Not being able to check is no reason to lose the report
+                    }
+                });
+    }
 
-                // Use the TensorFlow Lite result as the label to upload to Firestore
-                List<String> tfLiteLabels = new ArrayList<>();
-                tfLiteLabels.add(labelText);
+    // From the decoded photo, or stored with its cached classification when it wasn't decoded; null if neither is ready
+    private Long selectedImageHash() {
+        if (state.resizedBitmap != null) {
+            return BitmapHash.dHash(state.resizedBitmap);
+        }
+        return state.cachedClassification != null ? state.cachedClassification.imageHash : null;
+    }
 
-                // Upload image and data to Firebase using TensorFlow Lite label
-                uploadImageAndDataToFirebase(tfLiteLabels);
+    private void uploadUnlessDuplicate(List<Item> duplicates, long imageHash) {
+        if (duplicates.isEmpty()) {
+            labelAndUploadImage(imageHash);
+        } else {
+            progressBar.setVisibility(View.GONE);
+            confirmDuplicateUpload(duplicates.get(0), imageHash);
+        }
+    }
 
-            } catch (Exception e) {
-                Log.e("ModelError", "Error running TensorFlow Lite model", e);
+    private void confirmDuplicateUpload(Item existing, long imageHash) {
+        new AlertDialog.Builder(getContext())
+                .setTitle("Possible duplicate")
+                .setMessage("This photo looks like an item that was already reported: " + existing.getName()
+                        + " (" + existing.getCategory() + ", " + existing.getDisplayDate() + "). Report it anyway?")
+                .setPositiveButton("Report anyway", (dialog, which) -> {
+                    progressBar.setVisibility(View.VISIBLE);
+                    labelAndUploadImage(imageHash);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void labelAndUploadImage(long imageHash) {
+        if (state.resizedBitmap != null || state.cachedClassification != null) {
+            InferenceScheduler scheduler = ((MyApplication) getActivity().getApplication()).getInferenceScheduler();
+            if (scheduler == null) {
                 Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (pendingClassification != null) {
+                return; // Submit was tapped again while the first one is still labeling
+            }
+            progressBar.setVisibility(View.VISIBLE);
+            // A cached result only counts if it came from the model that is active now
+            if (state.cachedClassification != null && state.cachedClassification.modelHash.equals(scheduler.getModelHash())) {
+                uploadClassified(state.cachedClassification.result, imageHash);
+                return;
+            }
+            if (state.resizedBitmap == null) {
+                // A cache hit from a model that has since been replaced, so the photo has to be decoded after all
                 progressBar.setVisibility(View.GONE);
+                updateStatus("The model was updated, preparing the photo again", false);
+                lookUpOrDecode(scheduler.getModelSpec());
+                return;
             }
+            String contentHash = state.imageContentHash;
+
+            // Run TensorFlow Lite model on the resized bitmap, behind any interactive search jobs
+            pendingClassification = scheduler.classify(InferenceScheduler.PRIORITY_BACKGROUND, state.resizedBitmap,
+                    new InferenceScheduler.Callback<ClassificationResult>() {
+                        @Override
+                        public void onResult(ClassificationResult result) {
+                            pendingClassification = null;
+                            if (contentHash != null) {
+                                ClassificationCache.Entry entry = ((MyApplication) getActivity().getApplication())
+                                        .getClassificationCache().put(contentHash, scheduler.getModelHash(), result, imageHash);
+                                if (contentHash.equals(state.imageContentHash)) {
+                                    state.cachedClassification = entry;
+                                }
+                            }
+                            uploadClassified(result, imageHash);
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            pendingClassification = null;
+                            Log.e("ModelError", "Error running TensorFlow Lite model", e);
+                            Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                            progressBar.setVisibility(View.GONE);
+                        }
+                    });
         } else {
             updateStatus("No Image Selected", false);
         }
     }
 
-    private String classifyImage(Bitmap image) {
-        try {
-            // Ensure the labels are initialized
-            if (labels == null || labels.isEmpty()) {
-                throw new NullPointerException("Labels not initialized.");
-            }
+    private void uploadClassified(ClassificationResult result, long imageHash) {
+        // The engine already strips the leading number from the label
+        String labelText = result.getName();
 
-            TensorBuffer inputFeature0 = TensorBuffer.createFixedSize(new int[]{1, IMAGE_SIZE, IMAGE_SIZE, 3}, DataType.FLOAT32);
-            ByteBuffer byteBuffer = ByteBuffer.allocateDirect(4 * IMAGE_SIZE * IMAGE_SIZE * 3);
-            byteBuffer.order(ByteOrder.nativeOrder());
+        // Display the TensorFlow Lite result in the labelResults TextView
+        labelResults.setText("TensorFlow Lite Label: " + labelText);
 
-            int[] intValues = new int[IMAGE_SIZE * IMAGE_SIZE];
-            image.getPixels(intValues, 0, image.getWidth(), 0, 0, image.getWidth(), image.getHeight());
+        // Use the TensorFlow Lite result as the label to upload to Firestore
+        List<String> tfLiteLabels = new ArrayList<>();
+        tfLiteLabels.add(labelText);
 
-            int pixel = 0;
-            for (int i = 0; i < IMAGE_SIZE; i++) {
-                for (int j = 0; j < IMAGE_SIZE; j++) {
-                    int val = intValues[pixel++];
-                    byteBuffer.putFloat(((val >> 16) & 0xFF) * (1.f / 255.f));
-                    byteBuffer.putFloat(((val >> 8) & 0xFF) * (1.f / 255.f));
-                    byteBuffer.putFloat((val & 0xFF) * (1.f / 255.f));
-                }
+        // Upload image and data to Firebase using TensorFlow Lite label
+        uploadImageAndDataToFirebase(tfLiteLabels, result.getScores(), imageHash);
+    }
+
+    private void handleBulkSelection(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clipData = data.getClipData();
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); i++) {
+                uris.add(clipData.getItemAt(i).getUri());
             }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        if (uris.isEmpty()) {
+            Toast.makeText(getContext(), "No Image Selected", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            inputFeature0.loadBuffer(byteBuffer);
+        progressBar.setVisibility(View.VISIBLE);
+        ((MyApplication) getActivity().getApplication()).getModelManager().whenReady(new ModelManager.ReadyCallback() {
+            @Override
+            public void onReady(InferenceScheduler scheduler) {
+                if (getView() != null) {
+                    withReportLocation(location -> {
+                        if (getView() != null) {
+                            startBulkIntake(uris, location);
+                        }
+                    });
+                }
+            }
 
-            TensorBuffer outputFeature0 = TensorBuffer.createFixedSize(new int[]{1, labels.size()}, DataType.FLOAT32);
-            tflite.run(inputFeature0.getBuffer(), outputFeature0.getBuffer());
+            @Override
+            public void onFailed(Exception e) {
+                if (getView() != null) {
+                    progressBar.setVisibility(View.GONE);
+                    Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
 
-            float[] confidences = outputFeature0.getFloatArray();
-            int maxPos = 0;
-            float maxConfidence = 0;
-            for (int i = 0; i < confidences.length; i++) {
-                if (confidences[i] > maxConfidence) {
-                    maxConfidence = confidences[i];
-                    maxPos = i;
+    // Photos of one intake are taken in one place, so they all get the same location
+    private void startBulkIntake(List<Uri> uris, Location location) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        BitmapDecoder decoder = new BitmapDecoder(getContext().getContentResolver(), app.getBitmapPool());
+        String category = itemCategory.getText().toString().trim().toLowerCase(); // Shared by the whole intake, may be empty
+        ItemRepository repository = app.getItemRepository();
+        BulkTally tally = new BulkTally();
+
+        bulkClassifier = new BulkClassifier(decoder, app.getBitmapPool(), app.getModelManager());
+        bulkClassifier.start(uris, new BulkClassifier.Listener() {
+            @Override
+            public void onBatchClassified(List<BulkClassifier.Result> results) {
+                for (BulkClassifier.Result result : results) {
+                    // Photos already on file are skipped; the check needs the local index, so it only runs once loaded
+                    if (repository.isLoaded()
+                            && !repository.findByImageHash(result.imageHash, PerceptualHash.SAME_IMAGE_DISTANCE).isEmpty()) {
+                        tally.duplicates++;
+                        continue;
+                    }
+                    queueBulkItem(app, decoder, result, category, location, tally);
                 }
             }
 
-            // Return the label with the highest confidence
-            return labels.get(maxPos);
+            @Override
+            public void onProgress(int classified, int failed, int total, float imagesPerSecond) {
+                updateStatus(String.format(Locale.US, "Classified %d/%d (%.1f images/s)%s", classified, total,
+                        imagesPerSecond, failed > 0 ? ", " + failed + " failed" : ""), true);
+            }
 
-        } catch (Exception e) {
-            Log.e("ModelError", "Error running TensorFlow Lite model", e);
-            Toast.makeText(getContext(), "Model processing failed", Toast.LENGTH_SHORT).show();
-            return null;
+            @Override
+            public void onFinished(int classified, int failed, long elapsedMillis) {
+                bulkClassifier = null;
+                tally.classified = classified;
+                tally.failed = failed;
+                tally.elapsedMillis = elapsedMillis;
+                tally.finished = true;
+                showBulkSummary(tally);
+            }
+        });
+    }
+
+    // Once classification has finished and every classified item has been queued or has failed
+    private void showBulkSummary(BulkTally tally) {
+        if (!tally.finished || tally.shown || tally.preparing.get() > 0 || getView() == null) {
+            return;
         }
+        tally.shown = true;
+        int failed = tally.failed + tally.notQueued.get();
+        progressBar.setVisibility(View.GONE);
+        updateStatus(String.format(Locale.US, "Classified %d photos in %.1f s, %d queued for upload, %d duplicates skipped, %d failed",
+                tally.classified, tally.elapsedMillis / 1000f, tally.queued.get(), tally.duplicates, failed), failed == 0);
     }
 
-    private void uploadImageAndDataToFirebase(List<String> labels) {
-        StorageReference fileReference = storageRef.child("uploads/" + System.currentTimeMillis() + ".jpg");
-        fileReference.putFile(imageUri)
-                .addOnSuccessListener(taskSnapshot -> fileReference.getDownloadUrl().addOnSuccessListener(uri -> {
-                    String downloadUrl = uri.toString();
-                    saveItemData(downloadUrl, labels);
-                    updateStatus("Image Uploaded Successfully", true);
-                    progressBar.setVisibility(View.GONE);
-                    resetFields();
-                }).addOnFailureListener(e -> {
-                    updateStatus("Failed to get download URL", false);
-                    progressBar.setVisibility(View.GONE);
-                }))
-                .addOnFailureListener(e -> {
-                    updateStatus("Failed to Upload Image", false);
-                    progressBar.setVisibility(View.GONE);
-                    Toast.makeText(getContext(), "Network issue, please try again", Toast.LENGTH_SHORT).show();
-                });
+    private void queueBulkItem(MyApplication app, BitmapDecoder decoder, BulkClassifier.Result result, String category,
+                               Location location, BulkTally tally) {
+        String label = result.classification.getName();
+        List<String> labels = new ArrayList<>();
+        labels.add(label);
+        tally.preparing.incrementAndGet();
+        app.getIoExecutor().execute(() -> {
+            try {
+                ImageDerivatives derivatives = ImageDerivatives.create(decoder, app.getBitmapPool(), result.uri);
+                app.getUploadQueue().enqueue(label, category.isEmpty() ? label : category, labels,
+                        result.classification.getScores(), PerceptualHash.toHex(result.imageHash), location, derivatives);
+                tally.queued.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                Log.e("ImageProcessingError", "Error preparing " + result.uri + " for upload", e);
+                tally.notQueued.incrementAndGet();
+            } finally {
+                tally.preparing.decrementAndGet();
+                mainHandler.post(() -> showBulkSummary(tally));
+            }
+        });
+    }
+
+    // Counts for a bulk intake's closing status. Items are prepared and queued on the io executor, some of them
+    // after classification has finished, so only the items that actually reached the upload queue are counted.
+    private static class BulkTally {
+        final AtomicInteger preparing = new AtomicInteger();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger notQueued = new AtomicInteger();
+        // The rest are only touched on the main thread
+        int duplicates;
+        int classified;
+        int failed;
+        long elapsedMillis;
+        boolean finished;
+        boolean shown;
     }
 
-    private void saveItemData(String imageUrl, List<String> labels) {
+    @Override
+    public void onDestroyView() {
+        if (bulkClassifier != null) {
+            bulkClassifier.cancel();
+            bulkClassifier = null;
+        }
+        if (pendingClassification != null) {
+            pendingClassification.cancel();
+            pendingClassification = null;
+        }
+        super.onDestroyView();
+    }
+
+    // Builds the display image and thumbnail off the main thread and hands the report to the upload queue,
+    // which finishes it in the background even if this screen closes or the app is killed
+    private void uploadImageAndDataToFirebase(List<String> labels, float[] embedding, long imageHash) {
+        MyApplication app = (MyApplication) getActivity().getApplication();
+        BitmapDecoder decoder = new BitmapDecoder(getContext().getContentResolver(), app.getBitmapPool());
+        Uri source = state.imageUri;
         String name = itemName.getText().toString().trim().toLowerCase(); // Normalize to lowercase
         String category = itemCategory.getText().toString().trim().toLowerCase(); // Normalize to lowercase
-        Date dateAdded = new Date();
+        withReportLocation(location -> app.getIoExecutor().execute(() -> {
+            try {
+                ImageDerivatives derivatives = ImageDerivatives.create(decoder, app.getBitmapPool(), source);
+                app.getUploadQueue().enqueue(name, category, labels, embedding, PerceptualHash.toHex(imageHash), location, derivatives);
+                mainHandler.post(() -> {
+                    if (getView() != null) {
+                        updateStatus("Item queued for upload", true);
+                        progressBar.setVisibility(View.GONE);
+                        resetFields();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e("ImageProcessingError", "Error preparing image for upload", e);
+                mainHandler.post(() -> {
+                    if (getView() != null) {
+                        updateStatus("Failed to Upload Image", false);
+                        progressBar.setVisibility(View.GONE);
+                    }
+                });
+            }
+        }));
+    }
 
-        Item item = new Item(name, category, imageUrl, dateAdded, labels);
-        db.collection("items").add(item)
-                .addOnSuccessListener(documentReference -> updateStatus("Item Added", true))
-                .addOnFailureListener(e -> updateStatus("Error adding document", false));
+    // Where the item was found, when the box is ticked; a report is never held back for want of a location
+    private void withReportLocation(LocationConsumer consumer) {
+        if (!attachLocation.isChecked()) {
+            consumer.accept(null);
+            return;
+        }
+        CurrentLocation.get(getContext(), new CurrentLocation.Callback() {
+            @Override
+            public void onLocation(Location location) {
+                consumer.accept(location);
+            }
+
+            @Override
+            public void onUnavailable() {
+                if (getView() != null) {
+                    Toast.makeText(getContext(), "Location unavailable, saving without it", Toast.LENGTH_SHORT).show();
+                }
+                consumer.accept(null);
+            }
+        });
     }
 
     private boolean validateInput() {
@@ -280,6 +611,7 @@ public class UploadItemFragment extends Fragment {
     }
 
     private void resetFields() {
+        Glide.with(this).clear(imageView);
         imageView.setImageURI(null);
         itemName.setText("");
         itemCategory.setText("");
@@ -300,6 +632,10 @@ public class UploadItemFragment extends Fragment {
             } else {
                 Toast.makeText(getContext(), "Permission denied", Toast.LENGTH_SHORT).show();
             }
+        } else if (requestCode == LOCATION_PERMISSION_REQUEST) {
+            if (!CurrentLocation.hasPermission(getContext()) && attachLocation != null) {
+                attachLocation.setChecked(false);
+            }
         }
     }
 }
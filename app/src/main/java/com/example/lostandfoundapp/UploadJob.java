@@ -0,0 +1,132 @@
+package com.example.lostandfoundapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// One queued item report: its metadata plus the image files still to upload.
+// Saved as JSON next to the files after every step, so an upload can pick up where it stopped.
+public class UploadJob {
+
+    // One file of the job, stored locally until its download URL is known
+    static class Part {
+        final String fileName;
+        String sessionUri; // Resumable upload session, kept until the file is fully uploaded
+        String downloadUrl;
+
+        Part(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    final String id; // Also the Firestore document id, so committing twice writes the same document
+    final String name;
+    final String category;
+    final List<String> labels;
+    final float[] embedding;
+    final long dateAdded;
+    final String imageHash;
+    final Double latitude; // Null when the report has no location
+    final Double longitude;
+    final Part display = new Part(ImageDerivatives.DISPLAY_FILE);
+    final Part thumbnail = new Part(ImageDerivatives.THUMBNAIL_FILE);
+    int attempts; // Failed attempts in a row, for backoff
+
+    UploadJob(String id, String name, String category, List<String> labels, float[] embedding, long dateAdded, String imageHash,
+              Double latitude, Double longitude) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.labels = labels;
+        this.embedding = embedding;
+        this.dateAdded = dateAdded;
+        this.imageHash = imageHash;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    boolean isUploaded() {
+        return display.downloadUrl != null && thumbnail.downloadUrl != null;
+    }
+
+    Item toItem() {
+        Item item = new Item(name, category, display.downloadUrl, new Date(dateAdded), labels);
+        item.setThumbnailUrl(thumbnail.downloadUrl);
+        item.setImageHash(imageHash);
+        if (embedding != null) {
+            item.setEmbeddingArray(embedding);
+        }
+        if (latitude != null && longitude != null) {
+            item.setLocation(latitude, longitude);
+        }
+        return item;
+    }
+
+    String toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("name", name);
+        json.put("category", category);
+        json.put("labels", new JSONArray(labels));
+        if (embedding != null) {
+            JSONArray values = new JSONArray();
+            for (float value : embedding) {
+                values.put((double) value);
+            }
+            json.put("embedding", values);
+        }
+        json.put("dateAdded", dateAdded);
+        json.put("imageHash", imageHash);
+        if (latitude != null && longitude != null) {
+            json.put("latitude", (double) latitude);
+            json.put("longitude", (double) longitude);
+        }
+        json.put("display", partToJson(display));
+        json.put("thumbnail", partToJson(thumbnail));
+        json.put("attempts", attempts);
+        return json.toString();
+    }
+
+    static UploadJob fromJson(String text) throws JSONException {
+        JSONObject json = new JSONObject(text);
+        JSONArray labelsJson = json.getJSONArray("labels");
+        List<String> labels = new ArrayList<>(labelsJson.length());
+        for (int i = 0; i < labelsJson.length(); i++) {
+            labels.add(labelsJson.getString(i));
+        }
+        float[] embedding = null;
+        JSONArray embeddingJson = json.optJSONArray("embedding");
+        if (embeddingJson != null) {
+            embedding = new float[embeddingJson.length()];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = (float) embeddingJson.getDouble(i);
+            }
+        }
+        // Jobs queued before locations existed have neither field
+        Double latitude = json.has("latitude") ? json.getDouble("latitude") : null;
+        Double longitude = json.has("longitude") ? json.getDouble("longitude") : null;
+        UploadJob job = new UploadJob(json.getString("id"), json.getString("name"), json.getString("category"),
+                labels, embedding, json.getLong("dateAdded"), json.isNull("imageHash") ? null : json.optString("imageHash"),
+                latitude, longitude);
+        partFromJson(json.getJSONObject("display"), job.display);
+        partFromJson(json.getJSONObject("thumbnail"), job.thumbnail);
+        job.attempts = json.optInt("attempts");
+        return job;
+    }
+
+    private static JSONObject partToJson(Part part) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("sessionUri", part.sessionUri);
+        json.put("downloadUrl", part.downloadUrl);
+        return json;
+    }
+
+    private static void partFromJson(JSONObject json, Part part) {
+        part.sessionUri = json.isNull("sessionUri") ? null : json.optString("sessionUri");
+        part.downloadUrl = json.isNull("downloadUrl") ? null : json.optString("downloadUrl");
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.lostandfoundapp;
+
+import android.content.Context;
+import android.location.Location;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Uploads item reports in the background, independent of any screen.
+// Each job lives in its own directory under files/upload_queue with its image files and a job.json,
+// so reports survive the app being killed and resume on the next start. Image uploads use resumable
+// sessions and retry with exponential backoff; finished reports are written to Firestore in batches.
+// All queue state is touched only on the queue's own thread.
+public class UploadQueue {
+
+    public interface Listener {
+        // Called on the queue thread once the report is in Firestore
+        void onCommitted(Item item);
+    }
+
+    private static final String DIRECTORY = "upload_queue";
+    private static final String JOB_FILE = "job.json";
+    private static final String PARTIAL_SUFFIX = ".partial"; // Job directories still being written by enqueue
+    private static final long STALE_PARTIAL_MS = 60 * 60 * 1000;
+    private static final int MAX_CONCURRENT_JOBS = 2;
+    private static final int MAX_BATCH_SIZE = 20;
+    private static final long BATCH_DELAY_MS = 2000; // Wait this long for more finished uploads before committing
+    private static final long BASE_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable"; // Paths are never reused
+
+    private final File root;
+    private final CollectionReference items;
+    private final FirebaseFirestore db;
+    private final StorageReference storageRef;
+    private final Listener listener;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Random random = new Random();
+
+    private final Deque<UploadJob> waiting = new ArrayDeque<>();
+    private final Set<String> running = new HashSet<>();
+    private final List<UploadJob> readyToCommit = new ArrayList<>();
+    private final Map<UploadJob, ScheduledFuture<?>> retries = new HashMap<>(); // Jobs waiting out a backoff
+    private boolean commitScheduled;
+    private boolean committing;
+    private int commitAttempts;
+
+    public UploadQueue(Context context, FirebaseFirestore db, StorageReference storageRef, Listener listener) {
+        this.root = new File(context.getFilesDir(), DIRECTORY);
+        this.db = db;
+        this.items = db.collection("items");
+        this.storageRef = storageRef;
+        this.listener = listener;
+        watchConnectivity(context);
+    }
+
+    // Picks up jobs left over from an earlier run
+    public void resume() {
+        executor.execute(() -> {
+            File[] directories = root.listFiles();
+            if (directories == null) {
+                return;
+            }
+            for (File directory : directories) {
+                if (directory.getName().endsWith(PARTIAL_SUFFIX)) {
+                    // Left behind if the app died inside enqueue; a recent one may still be in progress
+                    if (System.currentTimeMillis() - directory.lastModified() > STALE_PARTIAL_MS) {
+                        deleteRecursively(directory);
+                    }
+                    continue;
+                }
+                try {
+                    UploadJob job = UploadJob.fromJson(readText(new File(directory, JOB_FILE)));
+                    job.attempts = 0;
+                    schedule(job);
+                } catch (IOException | JSONException e) {
+                    // Killed before job.json was complete, so it was never reported as queued
+                    Log.w("UploadQueue", "Dropping unreadable job " + directory.getName(), e);
+                    deleteRecursively(directory);
+                }
+            }
+        });
+    }
+
+    // Stores the images and metadata on disk, then uploads in the background. Returns the new item's id.
+    // location is where the item was found, or null. Slow: writes files. Call off the main thread.
+    public String enqueue(String name, String category, List<String> labels, float[] embedding, String imageHash,
+                          Location location, ImageDerivatives derivatives) throws IOException {
+        UploadJob job = new UploadJob(items.document().getId(), name, category, labels, embedding,
+                System.currentTimeMillis(), imageHash,
+                location != null ? location.getLatitude() : null, location != null ? location.getLongitude() : null);
+        // Written under a temporary name and renamed when complete, so resume never sees half a job
+        File partial = new File(root, job.id + PARTIAL_SUFFIX);
+        if (!partial.mkdirs()) {
+            throw new IOException("Unable to create " + partial);
+        }
+        try {
+            writeBytes(new File(partial, job.display.fileName), derivatives.getDisplay());
+            writeBytes(new File(partial, job.thumbnail.fileName), derivatives.getThumbnail());
+            save(job, partial);
+            if (!partial.renameTo(new File(root, job.id))) {
+                throw new IOException("Unable to move " + partial);
+            }
+        } catch (IOException e) {
+            deleteRecursively(partial);
+            throw e;
+        }
+        executor.execute(() -> schedule(job));
+        return job.id;
+    }
+
+    private void schedule(UploadJob job) {
+        if (job.isUploaded()) {
+            addToBatch(job);
+        } else {
+            waiting.add(job);
+            startWaitingJobs();
+        }
+    }
+
+    private void startWaitingJobs() {
+        while (running.size() < MAX_CONCURRENT_JOBS && !waiting.isEmpty()) {
+            UploadJob job = waiting.poll();
+            running.add(job.id);
+            uploadNextPart(job);
+        }
+    }
+
+    // Uploads the job's parts one after another, then hands it to the batch
+    private void uploadNextPart(UploadJob job) {
+        UploadJob.Part part = job.display.downloadUrl == null ? job.display
+                : job.thumbnail.downloadUrl == null ? job.thumbnail : null;
+        if (part == null) {
+            running.remove(job.id);
+            addToBatch(job);
+            startWaitingJobs();
+            return;
+        }
+
+        StorageReference reference = storageRef.child("items/" + job.id + "/" + part.fileName);
+        Uri file = Uri.fromFile(new File(new File(root, job.id), part.fileName));
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(ImageDerivatives.CONTENT_TYPE)
+                .setCacheControl(CACHE_CONTROL)
+                .build();
+        boolean resuming = part.sessionUri != null;
+        long start = Metrics.start();
+        UploadTask upload = resuming
+                ? reference.putFile(file, metadata, Uri.parse(part.sessionUri))
+                : reference.putFile(file, metadata);
+
+        upload.addOnProgressListener(executor, snapshot -> {
+            // Remember the session as soon as it exists, so a restart continues instead of starting over
+            Uri session = snapshot.getUploadSessionUri();
+            if (session != null && !session.toString().equals(part.sessionUri)) {
+                part.sessionUri = session.toString();
+                saveQuietly(job);
+            }
+        }).continueWithTask(executor, task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return reference.getDownloadUrl();
+        }).addOnCompleteListener(executor, task -> {
+            if (task.isSuccessful()) {
+                Metrics.record(Metrics.Stage.UPLOAD, start);
+                part.downloadUrl = task.getResult().toString();
+                part.sessionUri = null;
+                job.attempts = 0;
+                saveQuietly(job);
+                uploadNextPart(job);
+            } else {
+                Log.w("UploadQueue", "Upload of " + reference.getPath() + " failed", task.getException());
+                if (resuming) {
+                    part.sessionUri = null; // The session may have expired, start the file over next time
+                }
+                job.attempts++;
+                saveQuietly(job);
+                running.remove(job.id);
+                retries.put(job, executor.schedule(() -> {
+                    retries.remove(job);
+                    schedule(job);
+                }, backoff(job.attempts), TimeUnit.MILLISECONDS));
+                startWaitingJobs();
+            }
+        });
+    }
+
+    private void addToBatch(UploadJob job) {
+        readyToCommit.add(job);
+        if (readyToCommit.size() >= MAX_BATCH_SIZE) {
+            commit();
+        } else if (!commitScheduled) {
+            commitScheduled = true;
+            executor.schedule(this::commit, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Writes up to MAX_BATCH_SIZE finished reports in one batch; document ids are the job ids,
+    // so a batch that is retried after an unclear failure cannot create duplicates
+    private void commit() {
+        commitScheduled = false;
+        if (committing || readyToCommit.isEmpty()) {
+            return;
+        }
+        committing = true;
+        List<UploadJob> batchJobs = new ArrayList<>(readyToCommit.subList(0, Math.min(MAX_BATCH_SIZE, readyToCommit.size())));
+        readyToCommit.removeAll(batchJobs);
+
+        WriteBatch batch = db.batch();
+        List<Item> batchItems = new ArrayList<>();
+        for (UploadJob job : batchJobs) {
+            Item item = job.toItem();
+            batch.set(items.document(job.id), item);
+            batchItems.add(item);
+        }
+        long start = Metrics.start();
+        batch.commit().addOnCompleteListener(executor, task -> {
+            committing = false;
+            if (task.isSuccessful()) {
+                Metrics.record(Metrics.Stage.COMMIT, start);
+                commitAttempts = 0;
+                for (int i = 0; i < batchJobs.size(); i++) {
+                    deleteRecursively(new File(root, batchJobs.get(i).id));
+                    Item item = batchItems.get(i);
+                    item.setId(batchJobs.get(i).id);
+                    listener.onCommitted(item);
+                }
+                if (!readyToCommit.isEmpty()) {
+                    commit();
+                }
+            } else {
+                Log.w("UploadQueue", "Batch commit failed", task.getException());
+                readyToCommit.addAll(0, batchJobs);
+                commitAttempts++;
+                commitScheduled = true;
+                executor.schedule(this::commit, backoff(commitAttempts), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // Exponential with full jitter, so devices that lost the network together do not retry together
+    private long backoff(int attempts) {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts, 16));
+        return cap / 2 + (long) (random.nextDouble() * cap / 2);
+    }
+
+    // Jobs waiting out a backoff are retried as soon as a network comes back
+    private void watchConnectivity(Context context) {
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return;
+        }
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivity.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                executor.execute(() -> {
+                    List<UploadJob> retryNow = new ArrayList<>();
+                    for (Map.Entry<UploadJob, ScheduledFuture<?>> retry : retries.entrySet()) {
+                        if (retry.getValue().cancel(false)) {
+                            retryNow.add(retry.getKey());
+                        }
+                    }
+                    retries.clear();
+                    for (UploadJob job : retryNow) {
+                        schedule(job);
+                    }
+                    if (!committing && !readyToCommit.isEmpty()) {
+                        commitAttempts = 0;
+                        commit();
+                    }
+                });
+            }
+        });
+    }
+
+    private void saveQuietly(UploadJob job) {
+        try {
+            save(job, new File(root, job.id));
+        } catch (IOException e) {
+            Log.w("UploadQueue", "Could not save job " + job.id, e);
+        }
+    }
+
+    // Written to a temporary file and renamed, so a crash never leaves a half-written job.json
+    private static void save(UploadJob job, File directory) throws IOException {
+        File temporary = new File(directory, JOB_FILE + ".tmp");
+        try {
+            writeBytes(temporary, job.toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Unable to encode job " + job.id, e);
+        }
+        if (!temporary.renameTo(new File(directory, JOB_FILE))) {
+            throw new IOException("Unable to save job " + job.id);
+        }
+    }
+
+    private static void writeBytes(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+    }
+
+    private static String readText(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                read += n;
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete()) {
+            Log.w("UploadQueue", "Could not delete " + file);
+        }
+    }
+}
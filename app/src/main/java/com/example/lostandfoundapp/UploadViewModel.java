@@ -0,0 +1,17 @@
+package com.example.lostandfoundapp;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import androidx.lifecycle.ViewModel;
+
+// Upload screen state that outlives the fragment's views, so a rotation keeps the selected photo without
+// decoding it again. Main thread only.
+public class UploadViewModel extends ViewModel {
+
+    Uri imageUri;
+    Bitmap resizedBitmap; // The selected photo at model input size, not decoded on a cache hit
+    // Content hash of the selected photo and its cached result, if it was classified before
+    String imageContentHash;
+    ClassificationCache.Entry cachedClassification;
+}
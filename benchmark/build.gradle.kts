@@ -0,0 +1,25 @@
+// JMH benchmarks for the :core hot paths. Run with ./gradlew :benchmark:jmh;
+// throughput and allocation per operation (gc profiler) are written to build/results/jmh/.
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    jmh(project(":core"))
+}
+
+jmh {
+    jmhVersion = "1.37"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    profilers.add("gc")
+    resultFormat = "JSON"
+    humanOutputFile = layout.buildDirectory.file("results/jmh/human.txt")
+}
@@ -0,0 +1,86 @@
+package com.example.lostandfoundapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-image work around the Interpreter call: pixel normalization in, dequantization and argmax out,
+// plus the label parsing done once per model load
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClassificationBenchmark {
+
+    private static final int INPUT_SIZE = 224;
+    private static final int LABEL_COUNT = 1001;
+
+    private final PixelNormalizer floatNormalizer = PixelNormalizer.forFloat();
+    private final PixelNormalizer uint8Normalizer = PixelNormalizer.forQuantized(true, 1 / 255f, 0);
+    private int[] pixels;
+    private float[] floatValues;
+    private byte[] quantizedValues;
+    private byte[] quantizedScores;
+    private float[] scores;
+    private String[] labels;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        pixels = new int[INPUT_SIZE * INPUT_SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        floatValues = new float[pixels.length * 3];
+        quantizedValues = new byte[pixels.length * 3];
+
+        quantizedScores = new byte[LABEL_COUNT];
+        random.nextBytes(quantizedScores);
+        scores = new float[LABEL_COUNT];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+        }
+        labels = new String[LABEL_COUNT];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i + " Label Number " + i;
+        }
+    }
+
+    @Benchmark
+    public float[] normalizeFloat() {
+        floatNormalizer.normalize(pixels, floatValues);
+        return floatValues;
+    }
+
+    @Benchmark
+    public byte[] quantizeUint8() {
+        uint8Normalizer.quantize(pixels, quantizedValues);
+        return quantizedValues;
+    }
+
+    @Benchmark
+    public int dequantizeAndArgmax() {
+        Scores.dequantize(quantizedScores, true, 1 / 255f, 0, scores);
+        return Scores.argmax(scores);
+    }
+
+    @Benchmark
+    public int argmax() {
+        return Scores.argmax(scores);
+    }
+
+    @Benchmark
+    public int cleanAllLabels() {
+        int length = 0;
+        for (String label : labels) {
+            length += Labels.clean(label).length();
+        }
+        return length;
+    }
+}
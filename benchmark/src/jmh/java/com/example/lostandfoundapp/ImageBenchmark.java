@@ -0,0 +1,76 @@
+package com.example.lostandfoundapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-frame and per-photo image work: camera YUV conversion, perceptual hashing and label smoothing
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImageBenchmark {
+
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final int INPUT_SIZE = 224;
+
+    private final YuvConverter converter = new YuvConverter(INPUT_SIZE, INPUT_SIZE);
+    private ByteBuffer yPlane;
+    private ByteBuffer uPlane;
+    private ByteBuffer vPlane;
+    private int[] framePixels;
+    private int[] photoPixels;
+    private final LabelSmoother smoother = new LabelSmoother(8, 1001);
+    private float[] scores;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        // Direct buffers with interleaved chroma, like most camera HALs hand out
+        byte[] y = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        byte[] uv = new byte[FRAME_WIDTH * FRAME_HEIGHT / 2];
+        random.nextBytes(y);
+        random.nextBytes(uv);
+        yPlane = ByteBuffer.allocateDirect(y.length);
+        yPlane.put(y).rewind();
+        ByteBuffer chroma = ByteBuffer.allocateDirect(uv.length);
+        chroma.put(uv).rewind();
+        uPlane = chroma.duplicate();
+        chroma.position(1);
+        vPlane = chroma.slice();
+        framePixels = new int[INPUT_SIZE * INPUT_SIZE];
+
+        photoPixels = new int[INPUT_SIZE * INPUT_SIZE];
+        for (int i = 0; i < photoPixels.length; i++) {
+            photoPixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        scores = new float[1001];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public int[] convertCameraFrame() {
+        converter.convert(yPlane, FRAME_WIDTH, 1, uPlane, vPlane, FRAME_WIDTH, 2, FRAME_WIDTH, FRAME_HEIGHT, 90, framePixels);
+        return framePixels;
+    }
+
+    @Benchmark
+    public long perceptualHash() {
+        return PerceptualHash.dHash(photoPixels, INPUT_SIZE, INPUT_SIZE);
+    }
+
+    @Benchmark
+    public int smoothLabels() {
+        return smoother.add(scores);
+    }
+}
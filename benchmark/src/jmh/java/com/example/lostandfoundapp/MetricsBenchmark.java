@@ -0,0 +1,34 @@
+package com.example.lostandfoundapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of the instrumentation itself, one thread and contended
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    @Benchmark
+    public void recordStage() {
+        Metrics.record(Metrics.Stage.INFERENCE, Metrics.start());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordStageContended() {
+        Metrics.record(Metrics.Stage.INFERENCE, Metrics.start());
+    }
+
+    @Benchmark
+    public void incrementCounter() {
+        Metrics.increment(Metrics.Counter.INTERPRETER_RUNS);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.lostandfoundapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The local search indexes at catalogue sizes the app is expected to reach, and result merging
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark {
+
+    private static final String[] WORDS = {"black", "wallet", "phone", "blue", "umbrella", "keys", "silver", "watch",
+            "red", "backpack", "leather", "glasses", "charger", "headphones", "water", "bottle", "card", "jacket"};
+    private static final int EMBEDDING_DIMENSION = 1001;
+    private static final int RESULT_LIMIT = 20;
+
+    @Param({"10000"})
+    public int items;
+
+    private final TrigramIndex textIndex = new TrigramIndex();
+    private BkTree hashIndex;
+    private EmbeddingIndex embeddingIndex;
+    private long queryHash;
+    private float[] queryEmbedding;
+    private final String[] outKeys = new String[RESULT_LIMIT];
+    private final float[] outScores = new float[RESULT_LIMIT];
+    private final List<List<String>> pages = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        hashIndex = new BkTree();
+        embeddingIndex = new EmbeddingIndex(EMBEDDING_DIMENSION);
+        float[] vector = new float[EMBEDDING_DIMENSION];
+        for (int i = 0; i < items; i++) {
+            String id = "item" + i;
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            textIndex.put(id, name, WORDS[random.nextInt(WORDS.length)]);
+            hashIndex.put(id, random.nextLong());
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] = random.nextFloat() * random.nextFloat();
+            }
+            embeddingIndex.put(id, vector);
+        }
+        queryHash = random.nextLong();
+        queryEmbedding = vector.clone();
+
+        // Three result pages that overlap by half, like the name, category and label queries
+        for (int q = 0; q < 3; q++) {
+            List<String> page = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                page.add("item" + (q * 250 + i));
+            }
+            pages.add(page);
+        }
+    }
+
+    @Benchmark
+    public int textSearchExact() {
+        return textIndex.search("wallet", RESULT_LIMIT, outKeys, outScores);
+    }
+
+    @Benchmark
+    public int textSearchTypo() {
+        return textIndex.search("umbrela", RESULT_LIMIT, outKeys, outScores);
+    }
+
+    @Benchmark
+    public int imageHashExact() {
+        return hashIndex.search(queryHash, 0).size();
+    }
+
+    @Benchmark
+    public int imageHashSameImage() {
+        return hashIndex.search(queryHash, PerceptualHash.SAME_IMAGE_DISTANCE).size();
+    }
+
+    @Benchmark
+    public int embeddingNearest() {
+        return embeddingIndex.search(queryEmbedding, RESULT_LIMIT, outKeys, outScores);
+    }
+
+    @Benchmark
+    public int mergeResults() {
+        SearchResultMerger<String> merger = new SearchResultMerger<>(id -> id);
+        for (List<String> page : pages) {
+            merger.addAll(page);
+        }
+        return merger.size();
+    }
+}
@@ -0,0 +1,13 @@
+// Plain-Java logic shared by :app and :benchmark: search indexes, hashing, pixel and score math
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,131 @@
+package com.example.lostandfoundapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// BK-tree over 64-bit hashes with Hamming distance. Each child hangs off its parent at its exact distance
+// from it, so a radius search only follows children whose edge distance is within radius of the query's
+// distance to the parent (triangle inequality). Small radii touch a small fraction of the nodes.
+public class BkTree {
+
+    public static class Match {
+        public final String id;
+        public final int distance;
+
+        Match(String id, int distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+    }
+
+    private static final class Node {
+        final long hash;
+        final List<String> ids = new ArrayList<>(1); // Every id with exactly this hash
+        int[] edgeDistances = new int[0];
+        Node[] children = new Node[0];
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < edgeDistances.length; i++) {
+                if (edgeDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node node) {
+            int n = edgeDistances.length;
+            int[] distances = new int[n + 1];
+            Node[] nodes = new Node[n + 1];
+            System.arraycopy(edgeDistances, 0, distances, 0, n);
+            System.arraycopy(children, 0, nodes, 0, n);
+            distances[n] = distance;
+            nodes[n] = node;
+            edgeDistances = distances;
+            children = nodes;
+        }
+    }
+
+    private Node root;
+    private final Map<String, Node> nodeById = new HashMap<>();
+
+    // Adds the id under this hash, moving it if it was indexed under another one
+    public synchronized void put(String id, long hash) {
+        Node existing = nodeById.get(id);
+        if (existing != null) {
+            if (existing.hash == hash) {
+                return;
+            }
+            existing.ids.remove(id); // The empty node stays as a routing point for the tree
+        }
+
+        if (root == null) {
+            root = new Node(hash);
+            root.ids.add(id);
+            nodeById.put(id, root);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = PerceptualHash.distance(node.hash, hash);
+            if (distance == 0) {
+                node.ids.add(id);
+                nodeById.put(id, node);
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                Node added = new Node(hash);
+                added.ids.add(id);
+                node.addChild(distance, added);
+                nodeById.put(id, added);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    public synchronized void remove(String id) {
+        Node node = nodeById.remove(id);
+        if (node != null) {
+            node.ids.remove(id);
+        }
+    }
+
+    public synchronized int size() {
+        return nodeById.size();
+    }
+
+    // Every id within maxDistance of hash, closest first
+    public synchronized List<Match> search(long hash, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            int distance = PerceptualHash.distance(node.hash, hash);
+            if (distance <= maxDistance) {
+                for (String id : node.ids) {
+                    matches.add(new Match(id, distance));
+                }
+            }
+            for (int i = 0; i < node.edgeDistances.length; i++) {
+                if (Math.abs(node.edgeDistances[i] - distance) <= maxDistance) {
+                    stack.add(node.children[i]);
+                }
+            }
+        }
+        Collections.sort(matches, (a, b) -> Integer.compare(a.distance, b.distance));
+        return matches;
+    }
+}
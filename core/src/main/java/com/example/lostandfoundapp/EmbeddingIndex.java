@@ -0,0 +1,182 @@
+package com.example.lostandfoundapp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// In-memory nearest-neighbour index over model output vectors.
+// Vectors are stored as int8 (one contiguous byte array, one row per item) and compared by cosine similarity.
+// Each row is scaled so its largest component maps to 127; cosine is scale-invariant, so the scale is not kept.
+public class EmbeddingIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int dimension;
+    private byte[] vectors;
+    private float[] norms; // L2 norm of each quantized row
+    private String[] ids;
+    private int size;
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    // Scratch space for the query, reused between searches
+    private final byte[] queryRow;
+
+    public EmbeddingIndex(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.vectors = new byte[INITIAL_CAPACITY * dimension];
+        this.norms = new float[INITIAL_CAPACITY];
+        this.ids = new String[INITIAL_CAPACITY];
+        this.queryRow = new byte[dimension];
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Adds the vector, or replaces it if the id is already indexed
+    public synchronized void put(String id, float[] vector) {
+        checkDimension(vector);
+        int row = rowFor(id);
+        norms[row] = quantize(vector, vectors, row * dimension);
+    }
+
+    // Adds a row as copied out by copyRow, so a saved index is restored without the float vectors
+    public synchronized void putRow(String id, byte[] quantized) {
+        if (quantized == null || quantized.length != dimension) {
+            throw new IllegalArgumentException("Expected a row of dimension " + dimension);
+        }
+        int row = rowFor(id);
+        System.arraycopy(quantized, 0, vectors, row * dimension, dimension);
+        long sumSquares = 0;
+        for (byte q : quantized) {
+            sumSquares += q * q;
+        }
+        norms[row] = (float) Math.sqrt(sumSquares);
+    }
+
+    // Copies the id's int8 row into out, which must hold getDimension() values. False if the id is not indexed.
+    public synchronized boolean copyRow(String id, byte[] out) {
+        Integer row = rowById.get(id);
+        if (row == null) {
+            return false;
+        }
+        System.arraycopy(vectors, row * dimension, out, 0, dimension);
+        return true;
+    }
+
+    private int rowFor(String id) {
+        Integer existing = rowById.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = id;
+        rowById.put(id, row);
+        return row;
+    }
+
+    public synchronized void remove(String id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return;
+        }
+        // Move the last row into the hole so rows stay contiguous
+        int last = --size;
+        if (row != last) {
+            System.arraycopy(vectors, last * dimension, vectors, row * dimension, dimension);
+            norms[row] = norms[last];
+            ids[row] = ids[last];
+            rowById.put(ids[row], row);
+        }
+        ids[last] = null;
+    }
+
+    public synchronized void clear() {
+        rowById.clear();
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+
+    // Fills outIds/outScores with the k most similar rows, best first. Returns how many were found.
+    public synchronized int search(float[] query, int k, String[] outIds, float[] outScores) {
+        checkDimension(query);
+        k = Math.min(k, Math.min(outIds.length, outScores.length));
+        float queryNorm = quantize(query, queryRow, 0);
+        if (k <= 0 || queryNorm == 0f) {
+            return 0;
+        }
+
+        int found = 0;
+        for (int row = 0; row < size; row++) {
+            if (norms[row] == 0f) {
+                continue;
+            }
+            int offset = row * dimension;
+            int dot = 0;
+            for (int d = 0; d < dimension; d++) {
+                dot += queryRow[d] * vectors[offset + d];
+            }
+            float score = dot / (queryNorm * norms[row]);
+
+            // Keep the top k sorted by insertion; k is small compared to the number of rows
+            if (found < k) {
+                found++;
+            } else if (score <= outScores[k - 1]) {
+                continue;
+            }
+            int pos = found - 1;
+            while (pos > 0 && outScores[pos - 1] < score) {
+                outScores[pos] = outScores[pos - 1];
+                outIds[pos] = outIds[pos - 1];
+                pos--;
+            }
+            outScores[pos] = score;
+            outIds[pos] = ids[row];
+        }
+        return found;
+    }
+
+    // Writes the int8 form of vector into dest at offset and returns its L2 norm
+    private float quantize(float[] vector, byte[] dest, int offset) {
+        float maxAbs = 0f;
+        for (float v : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+        if (maxAbs == 0f || Float.isNaN(maxAbs)) {
+            Arrays.fill(dest, offset, offset + dimension, (byte) 0);
+            return 0f;
+        }
+        float scale = 127f / maxAbs;
+        long sumSquares = 0;
+        for (int d = 0; d < dimension; d++) {
+            int q = Math.round(vector[d] * scale);
+            dest[offset + d] = (byte) q;
+            sumSquares += q * q;
+        }
+        return (float) Math.sqrt(sumSquares);
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(rows, ids.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        norms = Arrays.copyOf(norms, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + dimension);
+        }
+    }
+}
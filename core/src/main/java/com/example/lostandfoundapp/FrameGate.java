@@ -0,0 +1,56 @@
+package com.example.lostandfoundapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Backpressure for a live frame stream: lets at most maxInFlight frames into inference at once and drops
+// the rest instead of queueing them, so results never lag behind the camera when inference is slow.
+public class FrameGate {
+
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public FrameGate(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    // True if the frame may go on to inference; the caller must then call release() once it is done.
+    // False means the frame is dropped.
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (inFlight.decrementAndGet() < 0) {
+            inFlight.incrementAndGet();
+            throw new IllegalStateException("release() without a matching tryAcquire()");
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.lostandfoundapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Standard base32 geohashes, whose string order follows the Z-order curve, so all points in a cell share
+// its hash as a prefix and one range query on a sorted geohash field reads exactly that cell.
+// covering() picks the cells for a search circle: they are sized so the circle's bounding box touches
+// at most two per axis, and cells that are adjacent in hash order are merged into a single range.
+public final class GeoHash {
+
+    public static final int STORED_PRECISION = 9; // Characters stored per item, a cell of about 5 m by 5 m
+
+    // Sorts after every base32 character, so "<prefix>~" ends the range of all hashes with that prefix
+    static final char RANGE_END = '~';
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int MAX_BITS = STORED_PRECISION * 5;
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+    private static final double METERS_PER_DEGREE_LATITUDE = 110574; // The smallest value, at the equator
+
+    // Hashes from start to end inclusive, for startAt(start) and endAt(end) on the geohash field
+    public static final class Range {
+        public final String start;
+        public final String end;
+
+        Range(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "]";
+        }
+    }
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        return toBase32(interleave(latitude, longitude, precision * 5), precision * 5);
+    }
+
+    // Great-circle distance by the haversine formula
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLng = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Ranges that together contain every hash within radiusMeters of the point: at most four, usually fewer.
+    // They can also hold points up to a cell beyond the radius, so results still need a distance check.
+    public static List<Range> covering(double latitude, double longitude, double radiusMeters) {
+        double dLat = radiusMeters / METERS_PER_DEGREE_LATITUDE;
+        double south = Math.max(-90, latitude - dLat);
+        double north = Math.min(90, latitude + dLat);
+        // Degrees of longitude shrink towards the poles, so the box is as wide as the circle at its widest row
+        double widestCos = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+        double dLng = widestCos > 0 ? radiusMeters / (METERS_PER_DEGREE_LATITUDE * widestCos) : 180;
+        if (dLng >= 180) {
+            dLng = 180;
+        }
+
+        int bits = bitsFor(north - south, 2 * dLng);
+        if (bits == 0) {
+            return Arrays.asList(new Range("", String.valueOf(RANGE_END)));
+        }
+        double west = wrapLongitude(longitude - dLng);
+        double east = wrapLongitude(longitude + dLng);
+        long[] cells = {
+                interleave(south, west, bits), interleave(south, east, bits),
+                interleave(north, west, bits), interleave(north, east, bits)
+        };
+        Arrays.sort(cells);
+
+        List<Range> ranges = new ArrayList<>(cells.length);
+        long first = cells[0];
+        long last = cells[0];
+        for (int i = 1; i <= cells.length; i++) {
+            if (i < cells.length && cells[i] <= last + 1) {
+                last = cells[i]; // Same or next cell in hash order, so the range just grows
+                continue;
+            }
+            ranges.add(toRange(first, last, bits));
+            if (i < cells.length) {
+                first = cells[i];
+                last = cells[i];
+            }
+        }
+        return ranges;
+    }
+
+    // Finest cell size, in bits, that is at least the given height and width in degrees. Longitude takes
+    // the odd bits, so a cell of b bits spans 360 / 2^ceil(b/2) degrees across and 180 / 2^floor(b/2) down.
+    static int bitsFor(double heightDegrees, double widthDegrees) {
+        for (int bits = MAX_BITS; bits > 0; bits--) {
+            double width = 360.0 / (1L << ((bits + 1) / 2));
+            double height = 180.0 / (1L << (bits / 2));
+            if (width >= widthDegrees && height >= heightDegrees) {
+                return bits;
+            }
+        }
+        return 0;
+    }
+
+    // The cell's bits, longitude first, most significant first
+    static long interleave(double latitude, double longitude, int bits) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        long hash = 0;
+        for (int i = 0; i < bits; i++) {
+            hash <<= 1;
+            if (i % 2 == 0) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    hash |= 1;
+                    minLng = mid;
+                } else {
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    hash |= 1;
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+        }
+        return hash;
+    }
+
+    // A cell count that isn't a whole number of characters covers a run of values of its last character
+    private static Range toRange(long first, long last, int bits) {
+        int chars = (bits + 4) / 5;
+        int padding = chars * 5 - bits;
+        long start = first << padding;
+        long end = (last << padding) | ((1L << padding) - 1);
+        return new Range(toBase32(start, chars * 5), toBase32(end, chars * 5) + RANGE_END);
+    }
+
+    private static String toBase32(long hash, int bits) {
+        char[] chars = new char[bits / 5];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (hash & 31)];
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude >= 180) {
+            return longitude - 360;
+        }
+        if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude;
+    }
+}
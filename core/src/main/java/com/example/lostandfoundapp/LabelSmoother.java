@@ -0,0 +1,79 @@
+package com.example.lostandfoundapp;
+
+// Averages the model's scores over the last windowSize frames, so the shown label does not flicker when
+// single frames disagree. Running sums make each frame O(labels) regardless of the window size.
+public class LabelSmoother {
+
+    private final float[][] window;
+    private final double[] sums;
+    private int count;
+    private int next; // Ring slot the next frame goes into
+
+    public LabelSmoother(int windowSize, int labelCount) {
+        if (windowSize < 1 || labelCount < 1) {
+            throw new IllegalArgumentException("Window size and label count must be positive");
+        }
+        window = new float[windowSize][labelCount];
+        sums = new double[labelCount];
+    }
+
+    // Adds one frame's scores and returns the label with the highest average over the window
+    public int add(float[] scores) {
+        if (scores.length != sums.length) {
+            throw new IllegalArgumentException("Expected " + sums.length + " scores, got " + scores.length);
+        }
+        float[] slot = window[next];
+        boolean full = count == window.length;
+        for (int i = 0; i < sums.length; i++) {
+            if (full) {
+                sums[i] -= slot[i];
+            }
+            sums[i] += scores[i];
+            slot[i] = scores[i];
+        }
+        next = (next + 1) % window.length;
+        if (!full) {
+            count++;
+        }
+        return topLabel();
+    }
+
+    // Highest average so far, -1 before the first frame
+    public int topLabel() {
+        if (count == 0) {
+            return -1;
+        }
+        int top = 0;
+        for (int i = 1; i < sums.length; i++) {
+            if (sums[i] > sums[top]) {
+                top = i;
+            }
+        }
+        return top;
+    }
+
+    public float averageScore(int label) {
+        return count == 0 ? 0f : (float) (sums[label] / count);
+    }
+
+    // A copy of every label's average, usable as an embedding for similarity search
+    public float[] averageScores() {
+        float[] averages = new float[sums.length];
+        for (int i = 0; i < averages.length; i++) {
+            averages[i] = averageScore(i);
+        }
+        return averages;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+        next = 0;
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = 0;
+        }
+    }
+}
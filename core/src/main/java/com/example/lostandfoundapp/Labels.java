@@ -0,0 +1,24 @@
+package com.example.lostandfoundapp;
+
+public final class Labels {
+
+    private Labels() {
+    }
+
+    // "0 Mobile Phone" -> "mobile phone"
+    public static String clean(String label) {
+        String labelWithNumber = label.trim().toLowerCase();
+        // Split by first space, dropping the first part if it is a class number
+        int space = labelWithNumber.indexOf(' ');
+        if (space <= 0) {
+            return labelWithNumber;
+        }
+        for (int i = 0; i < space; i++) {
+            char c = labelWithNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return labelWithNumber;
+            }
+        }
+        return labelWithNumber.substring(space + 1).trim();
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.lostandfoundapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Process-wide counters and per-stage latency histograms, all lock-free atomics so any thread can record.
+// Latencies go into log2 buckets of microseconds: bucket b holds [2^(b-1), 2^b) us, bucket 0 anything under 1 us.
+// Recording is a nanoTime call plus a few atomic adds; nothing runs while nothing is recorded.
+//
+//     long start = Metrics.start();
+//     ...
+//     Metrics.record(Metrics.Stage.DECODE, start);
+public final class Metrics {
+
+    public enum Stage {
+        APP_START("appStart"),
+        MODEL_LOAD("modelLoad"),
+        DECODE("decode"),
+        RESIZE("resize"),
+        ENCODE("encode"),
+        PREPROCESS("preprocess"),
+        INFERENCE("inference"),
+        YUV_CONVERT("yuvConvert"),
+        FIRESTORE_QUERY("firestoreQuery"),
+        DESERIALIZE("deserialize"),
+        LOCAL_SEARCH("localSearch"),
+        IMAGE_LOAD("imageLoad"),
+        UPLOAD("upload"),
+        COMMIT("commit");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    public enum Counter {
+        INTERPRETER_RUNS("interpreterRuns"),
+        IMAGES_CLASSIFIED("imagesClassified"),
+        FRAMES_DROPPED("framesDropped"),
+        SERVER_DOCUMENTS("serverDocuments"),
+        QUERY_CACHE_HITS("queryCacheHits"),
+        QUERY_CACHE_MISSES("queryCacheMisses"),
+        REVALIDATIONS("revalidations"),
+        CLASSIFICATION_CACHE_HITS("classificationCacheHits"),
+        CLASSIFICATION_CACHE_MISSES("classificationCacheMisses"),
+        IMAGE_LOAD_FAILURES("imageLoadFailures"),
+        IMAGE_MEMORY_HITS("imageMemoryHits"),
+        BITMAPS_ALLOCATED("bitmapsAllocated"),
+        BITMAPS_REUSED("bitmapsReused");
+
+        final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    static final int BUCKETS = 32; // The last bucket takes everything from 2^30 us (about 18 minutes) up
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private static final AtomicLongArray histograms = new AtomicLongArray(STAGES.length * BUCKETS);
+    private static final AtomicLongArray stageCounts = new AtomicLongArray(STAGES.length);
+    private static final AtomicLongArray stageTotalNanos = new AtomicLongArray(STAGES.length);
+    private static final AtomicLongArray stageMaxNanos = new AtomicLongArray(STAGES.length);
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTERS.length);
+    private static final AtomicLong bitmapBytes = new AtomicLong();
+    private static final AtomicLong peakBitmapBytes = new AtomicLong();
+    private static volatile long resetAtNanos = System.nanoTime();
+    private static volatile boolean enabled = true;
+
+    private Metrics() {
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Start time for record(), or 0 when metrics are off, which record() then ignores
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void record(Stage stage, long startNanos) {
+        if (startNanos != 0L) {
+            recordNanos(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    public static void recordNanos(Stage stage, long nanos) {
+        if (!enabled || nanos < 0) {
+            return;
+        }
+        int s = stage.ordinal();
+        histograms.incrementAndGet(s * BUCKETS + bucketOf(nanos / 1000));
+        stageCounts.incrementAndGet(s);
+        stageTotalNanos.addAndGet(s, nanos);
+        long max;
+        while (nanos > (max = stageMaxNanos.get(s))) {
+            if (stageMaxNanos.compareAndSet(s, max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public static void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    public static void add(Counter counter, long delta) {
+        if (enabled) {
+            counters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    public static long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    public static long count(Stage stage) {
+        return stageCounts.get(stage.ordinal());
+    }
+
+    // Bitmap memory held by the app's decode path, with its high-water mark
+    public static void bitmapAllocated(long bytes) {
+        long now = bitmapBytes.addAndGet(bytes);
+        long peak;
+        while (now > (peak = peakBitmapBytes.get())) {
+            if (peakBitmapBytes.compareAndSet(peak, now)) {
+                break;
+            }
+        }
+    }
+
+    public static void bitmapReleased(long bytes) {
+        bitmapBytes.addAndGet(-bytes);
+    }
+
+    public static long getBitmapBytes() {
+        return bitmapBytes.get();
+    }
+
+    public static long getPeakBitmapBytes() {
+        return peakBitmapBytes.get();
+    }
+
+    // Clears counters and histograms; bitmaps still held keep counting, so the peak restarts at the current bytes
+    public static void reset() {
+        for (int i = 0; i < histograms.length(); i++) {
+            histograms.set(i, 0);
+        }
+        for (int i = 0; i < STAGES.length; i++) {
+            stageCounts.set(i, 0);
+            stageTotalNanos.set(i, 0);
+            stageMaxNanos.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        peakBitmapBytes.set(bitmapBytes.get());
+        resetAtNanos = System.nanoTime();
+    }
+
+    static int bucketOf(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    // Exclusive upper bound of a bucket in microseconds
+    static long bucketLimitMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    // Smallest bucket limit with at least the given fraction of samples below it
+    static long percentileMicros(long[] buckets, long count, double fraction) {
+        long needed = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen += buckets[b];
+            if (seen >= needed && seen > 0) {
+                return bucketLimitMicros(b);
+            }
+        }
+        return bucketLimitMicros(buckets.length - 1);
+    }
+
+    // A snapshot as JSON. Stages never recorded are left out; percentiles are bucket upper bounds.
+    // Values are read one by one while other threads may be recording, so they can be off by in-flight samples.
+    public static String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"sinceResetMs\":").append((System.nanoTime() - resetAtNanos) / 1000000);
+
+        json.append(",\"stages\":{");
+        boolean first = true;
+        long[] buckets = new long[BUCKETS];
+        for (Stage stage : STAGES) {
+            int s = stage.ordinal();
+            long count = stageCounts.get(s);
+            if (count == 0) {
+                continue;
+            }
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[b] = histograms.get(s * BUCKETS + b);
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(stage.key).append("\":{\"count\":").append(count)
+                    .append(",\"meanUs\":").append(stageTotalNanos.get(s) / count / 1000)
+                    .append(",\"maxUs\":").append(stageMaxNanos.get(s) / 1000)
+                    .append(",\"p50Us\":").append(percentileMicros(buckets, count, 0.50))
+                    .append(",\"p90Us\":").append(percentileMicros(buckets, count, 0.90))
+                    .append(",\"p99Us\":").append(percentileMicros(buckets, count, 0.99))
+                    .append(",\"histogramUs\":{");
+            boolean firstBucket = true;
+            for (int b = 0; b < BUCKETS; b++) {
+                if (buckets[b] == 0) {
+                    continue;
+                }
+                if (!firstBucket) {
+                    json.append(',');
+                }
+                firstBucket = false;
+                json.append("\"<").append(bucketLimitMicros(b)).append("\":").append(buckets[b]);
+            }
+            json.append("}}");
+        }
+        json.append('}');
+
+        json.append(",\"counters\":{");
+        for (int i = 0; i < COUNTERS.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(COUNTERS[i].key).append("\":").append(counters.get(i));
+        }
+        json.append('}');
+
+        json.append(",\"bitmapBytes\":{\"current\":").append(bitmapBytes.get())
+                .append(",\"peak\":").append(peakBitmapBytes.get()).append("}}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.lostandfoundapp;
+
+// 64-bit difference hash (dHash) of an image. The image is reduced to a 9x8 grid of average brightness
+// and each bit records whether a cell is brighter than its right neighbour. Re-encoding, resizing and small
+// colour changes move only a few bits, so photos of the same thing land within a small Hamming distance.
+public final class PerceptualHash {
+
+    // Hashes at most this many bits apart are treated as the same photo (re-encoded, resized or cropped slightly)
+    public static final int SAME_IMAGE_DISTANCE = 6;
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    // pixels are ARGB, row by row
+    public static long dHash(int[] pixels, int width, int height) {
+        // Average luminance per grid cell, so every pixel counts, not just a sampled few
+        long[] sums = new long[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            int row = y * GRID_HEIGHT / height * GRID_WIDTH;
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[y * width + x];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                int cell = row + x * GRID_WIDTH / width;
+                sums[cell] += 299 * r + 587 * g + 114 * b;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int left = y * GRID_WIDTH + x;
+                // Compare averages without dividing: a/ca > b/cb  <=>  a*cb > b*ca
+                boolean brighter = sums[left] * counts[left + 1] > sums[left + 1] * counts[left];
+                hash = (hash << 1) | (brighter ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // Stored on Item as 16 lower-case hex digits
+    public static String toHex(long hash) {
+        String hex = Long.toHexString(hash);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    // Throws NumberFormatException for anything that toHex did not produce
+    public static long fromHex(String hex) {
+        if (hex.length() != 16) {
+            throw new NumberFormatException("Not a 64-bit hash: " + hex);
+        }
+        // Long.parseUnsignedLong needs API 26, parse the halves instead
+        return (Long.parseLong(hex.substring(0, 8), 16) << 32) | Long.parseLong(hex.substring(8), 16);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.lostandfoundapp;
+
+// Turns ARGB pixels into model input values, R, G and B per pixel. Every channel value (0..255) is mapped
+// through a lookup table computed once per model, so the per-pixel work is three table reads.
+// Float models get 0..1; quantized models get the same 0..1 range through their scale and zero point.
+public final class PixelNormalizer {
+
+    private final float[] floatLookup;
+    private final byte[] quantizedLookup;
+
+    private PixelNormalizer(float[] floatLookup, byte[] quantizedLookup) {
+        this.floatLookup = floatLookup;
+        this.quantizedLookup = quantizedLookup;
+    }
+
+    public static PixelNormalizer forFloat() {
+        float[] lookup = new float[256];
+        for (int i = 0; i < lookup.length; i++) {
+            lookup[i] = i * (1.f / 255.f);
+        }
+        return new PixelNormalizer(lookup, null);
+    }
+
+    // For the usual scale 1/255 with zero point 0 (uint8) or -128 (int8) this is a straight byte copy
+    public static PixelNormalizer forQuantized(boolean unsigned, float scale, int zeroPoint) {
+        if (scale <= 0f) {
+            throw new IllegalArgumentException("Quantized input without a scale");
+        }
+        int min = unsigned ? 0 : -128;
+        int max = unsigned ? 255 : 127;
+        byte[] lookup = new byte[256];
+        for (int i = 0; i < lookup.length; i++) {
+            int q = Math.round(i / 255.f / scale) + zeroPoint;
+            lookup[i] = (byte) Math.max(min, Math.min(max, q));
+        }
+        return new PixelNormalizer(null, lookup);
+    }
+
+    public boolean isQuantized() {
+        return quantizedLookup != null;
+    }
+
+    // out needs 3 values per pixel
+    public void normalize(int[] pixels, float[] out) {
+        int i = 0;
+        for (int val : pixels) {
+            out[i++] = floatLookup[(val >> 16) & 0xFF];
+            out[i++] = floatLookup[(val >> 8) & 0xFF];
+            out[i++] = floatLookup[val & 0xFF];
+        }
+    }
+
+    // out needs 3 values per pixel
+    public void quantize(int[] pixels, byte[] out) {
+        int i = 0;
+        for (int val : pixels) {
+            out[i++] = quantizedLookup[(val >> 16) & 0xFF];
+            out[i++] = quantizedLookup[(val >> 8) & 0xFF];
+            out[i++] = quantizedLookup[val & 0xFF];
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.lostandfoundapp;
+
+// Model output helpers: dequantizing the raw output and picking the top label
+public final class Scores {
+
+    private Scores() {
+    }
+
+    // Index of the highest score, the first one on ties
+    public static int argmax(float[] scores) {
+        int maxPos = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[maxPos]) {
+                maxPos = i;
+            }
+        }
+        return maxPos;
+    }
+
+    public static void dequantize(byte[] quantized, boolean unsigned, float scale, int zeroPoint, float[] out) {
+        for (int i = 0; i < out.length; i++) {
+            int q = unsigned ? quantized[i] & 0xFF : quantized[i];
+            out[i] = (q - zeroPoint) * scale;
+        }
+    }
+}
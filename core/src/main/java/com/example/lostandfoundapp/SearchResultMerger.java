@@ -0,0 +1,46 @@
+package com.example.lostandfoundapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Merges the results of several queries into one list, keeping the first copy of each document.
+// Lookups are by id in a hash set, so merging n results is O(n).
+public class SearchResultMerger<T> {
+
+    public interface IdGetter<T> {
+        String idOf(T item);
+    }
+
+    private final IdGetter<T> idGetter;
+    private final Set<String> seenIds = new HashSet<>();
+    private final List<T> results = new ArrayList<>();
+
+    public SearchResultMerger(IdGetter<T> idGetter) {
+        this.idGetter = idGetter;
+    }
+
+    // Returns true if at least one new result was added
+    public boolean addAll(Iterable<T> items) {
+        boolean added = false;
+        for (T item : items) {
+            String id = idGetter.idOf(item);
+            // Items without an id cannot be compared, keep them all
+            if (id == null || seenIds.add(id)) {
+                results.add(item);
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    public List<T> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    public int size() {
+        return results.size();
+    }
+}
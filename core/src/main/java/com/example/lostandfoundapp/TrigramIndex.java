@@ -0,0 +1,343 @@
+package com.example.lostandfoundapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Local full-text index over short documents (item name, category and labels).
+// Every token is padded with spaces and split into trigrams; each trigram keeps a sorted int[] posting list of documents.
+// A query counts shared trigrams per document to pick candidates, then scores them by substring match or edit distance,
+// so "phone" finds "mobile phone" and "phnoe" still finds "phone".
+public class TrigramIndex {
+
+    private static final int MAX_CANDIDATES = 2000; // Documents verified per query, best trigram overlap first
+    private static final float MIN_FUZZY_SCORE = 0.5f;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> docByKey = new HashMap<>();
+
+    // Indexed by internal doc id. Updated documents get a new id; the old one is marked dead until compaction.
+    private String[] keys = new String[256];
+    private String[] texts = new String[256];
+    private String[][] tokens = new String[256][];
+    private boolean[] live = new boolean[256];
+    private int docCount;
+    private int deadCount;
+
+    // Per-query scratch space
+    private int[] hitCounts = new int[256];
+    private int[] touched = new int[256];
+    private final int[] distanceRow0 = new int[64];
+    private final int[] distanceRow1 = new int[64];
+    private final int[] distanceRow2 = new int[64];
+
+    // Adds the document, or replaces it if the key is already indexed
+    public synchronized void put(String key, String... fields) {
+        removeInternal(key);
+        String text = normalize(join(fields));
+        String[] docTokens = tokenize(text);
+
+        int doc = docCount++;
+        ensureCapacity(docCount);
+        keys[doc] = key;
+        texts[doc] = text;
+        tokens[doc] = docTokens;
+        live[doc] = true;
+        docByKey.put(key, doc);
+
+        for (String token : docTokens) {
+            String padded = " " + token + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                long trigram = trigram(padded, i);
+                Postings list = postings.get(trigram);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(trigram, list);
+                }
+                list.addIfLast(doc); // Doc ids only grow, so lists stay sorted
+            }
+        }
+    }
+
+    public synchronized void remove(String key) {
+        removeInternal(key);
+    }
+
+    public synchronized int size() {
+        return docCount - deadCount;
+    }
+
+    private void removeInternal(String key) {
+        Integer doc = docByKey.remove(key);
+        if (doc == null) {
+            return;
+        }
+        live[doc] = false;
+        texts[doc] = null;
+        tokens[doc] = null;
+        deadCount++;
+        if (deadCount > 1024 && deadCount > docCount / 2) {
+            compact();
+        }
+    }
+
+    // Fills outKeys/outScores with the k best matches, best first. Returns how many were found.
+    public synchronized int search(String query, int k, String[] outKeys, float[] outScores) {
+        String normalized = normalize(query);
+        String[] queryTokens = tokenize(normalized);
+        k = Math.min(k, Math.min(outKeys.length, outScores.length));
+        if (queryTokens.length == 0 || k <= 0) {
+            return 0;
+        }
+
+        // Count, for every document, how many distinct query trigrams it contains
+        List<Long> queryTrigrams = new ArrayList<>();
+        int allowedMisses = 0;
+        for (String token : queryTokens) {
+            String padded = " " + token + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                long trigram = trigram(padded, i);
+                if (!queryTrigrams.contains(trigram)) {
+                    queryTrigrams.add(trigram);
+                }
+            }
+            // A word's prefix lacks the token's closing trigram, and one edit breaks at most four more (a swap)
+            allowedMisses += 1 + 4 * maxEdits(token);
+        }
+        int touchedCount = 0;
+        int maxHits = 0;
+        for (long trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (!live[doc]) {
+                    continue;
+                }
+                if (hitCounts[doc]++ == 0) {
+                    touched[touchedCount++] = doc;
+                }
+                maxHits = Math.max(maxHits, hitCounts[doc]);
+            }
+        }
+
+        int minHits = Math.max(1, queryTrigrams.size() - allowedMisses);
+        int found = 0;
+        try {
+            // Verify the documents with the most shared trigrams first, at most MAX_CANDIDATES of them
+            int verified = 0;
+            for (int hits = maxHits; hits >= minHits && verified < MAX_CANDIDATES; hits--) {
+                for (int t = 0; t < touchedCount && verified < MAX_CANDIDATES; t++) {
+                    int doc = touched[t];
+                    if (hitCounts[doc] != hits) {
+                        continue;
+                    }
+                    verified++;
+                    float score = score(doc, normalized, queryTokens);
+                    if (score > 0f) {
+                        found = insertTopK(keys[doc], score, found, k, outKeys, outScores);
+                    }
+                }
+            }
+        } finally {
+            for (int t = 0; t < touchedCount; t++) {
+                hitCounts[touched[t]] = 0;
+            }
+        }
+        return found;
+    }
+
+    // Above 1 for a substring match, up to 1 for a fuzzy token match, 0 for no match
+    private float score(int doc, String query, String[] queryTokens) {
+        String text = texts[doc];
+        if (text.contains(query)) {
+            // Shorter documents and matches at a word start rank first
+            int at = text.indexOf(query);
+            float wordStart = at == 0 || text.charAt(at - 1) == ' ' ? 0.5f : 0f;
+            return 2f + wordStart + query.length() / (float) text.length();
+        }
+
+        float sum = 0f;
+        for (String queryToken : queryTokens) {
+            if (text.contains(queryToken)) {
+                sum += 1f;
+                continue;
+            }
+            int allowed = maxEdits(queryToken);
+            int best = allowed + 1;
+            for (String token : tokens[doc]) {
+                best = Math.min(best, boundedEditDistance(queryToken, token, allowed));
+                if (best == 1) {
+                    break; // 0 is impossible here, the token was not a substring
+                }
+            }
+            if (best <= allowed) {
+                sum += 1f - best / (float) (queryToken.length() + 1);
+            }
+        }
+        float score = sum / queryTokens.length;
+        return score >= MIN_FUZZY_SCORE ? score : 0f;
+    }
+
+    private static int insertTopK(String key, float score, int found, int k, String[] outKeys, float[] outScores) {
+        if (found == k && score <= outScores[k - 1]) {
+            return found;
+        }
+        if (found < k) {
+            found++;
+        }
+        int pos = found - 1;
+        while (pos > 0 && outScores[pos - 1] < score) {
+            outScores[pos] = outScores[pos - 1];
+            outKeys[pos] = outKeys[pos - 1];
+            pos--;
+        }
+        outScores[pos] = score;
+        outKeys[pos] = key;
+        return found;
+    }
+
+    // Short words tolerate one typo, longer ones two
+    private static int maxEdits(String token) {
+        return token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2;
+    }
+
+    // Edit distance counting a swap of two neighbouring letters as one edit,
+    // or limit + 1 as soon as it is known to exceed limit
+    private int boundedEditDistance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        if (b.length() + 1 > distanceRow0.length) {
+            return limit + 1; // Longer than any item word we expect, not worth a fuzzy match
+        }
+        int[] beforePrevious = distanceRow2;
+        int[] previous = distanceRow0;
+        int[] current = distanceRow1;
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int d = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    d = Math.min(d, beforePrevious[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    // Rebuilds the postings from live documents only
+    private void compact() {
+        String[] oldKeys = keys;
+        String[] oldTexts = texts;
+        int oldCount = docCount;
+        List<String> liveKeys = new ArrayList<>();
+        List<String> liveTexts = new ArrayList<>();
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (live[doc]) {
+                liveKeys.add(oldKeys[doc]);
+                liveTexts.add(oldTexts[doc]);
+            }
+        }
+
+        postings.clear();
+        docByKey.clear();
+        Arrays.fill(live, false);
+        Arrays.fill(keys, null);
+        Arrays.fill(texts, null);
+        Arrays.fill(tokens, null);
+        docCount = 0;
+        deadCount = 0;
+        for (int i = 0; i < liveKeys.size(); i++) {
+            put(liveKeys.get(i), liveTexts.get(i)); // Already normalized, normalizing again is a no-op
+        }
+    }
+
+    private void ensureCapacity(int docs) {
+        if (docs <= keys.length) {
+            return;
+        }
+        int capacity = Math.max(docs, keys.length * 2);
+        keys = Arrays.copyOf(keys, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        live = Arrays.copyOf(live, capacity);
+        hitCounts = Arrays.copyOf(hitCounts, capacity);
+        touched = Arrays.copyOf(touched, capacity);
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    // Lower case, and anything that is not a letter or digit becomes a single space
+    static String normalize(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = true;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') {
+            sb.setLength(end - 1);
+        }
+        return sb.toString();
+    }
+
+    private static String[] tokenize(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static String join(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (String field : fields) {
+            if (field != null) {
+                sb.append(field).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    // Growable, sorted int array of document ids
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void addIfLast(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return; // Same trigram twice in one document
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
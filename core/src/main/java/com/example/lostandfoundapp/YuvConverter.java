@@ -0,0 +1,134 @@
+package com.example.lostandfoundapp;
+
+import java.nio.ByteBuffer;
+
+// Converts YUV_420_888 camera frames straight into model-sized ARGB pixels, with no Bitmap in between.
+// Center crop, scaling and rotation happen in the same pass: for each output pixel the offsets of its
+// source Y and U/V samples are computed once per frame geometry, so a frame is one table lookup per pixel.
+public class YuvConverter {
+
+    private final int outWidth;
+    private final int outHeight;
+    private final int[] yOffsets;
+    private final int[] uvOffsets;
+
+    // Frame geometry the offset tables were built for
+    private int width = -1;
+    private int height;
+    private int yRowStride;
+    private int yPixelStride;
+    private int uvRowStride;
+    private int uvPixelStride;
+    private int rotationDegrees;
+
+    public YuvConverter(int outWidth, int outHeight) {
+        if (outWidth <= 0 || outHeight <= 0) {
+            throw new IllegalArgumentException("Output size must be positive");
+        }
+        this.outWidth = outWidth;
+        this.outHeight = outHeight;
+        yOffsets = new int[outWidth * outHeight];
+        uvOffsets = new int[outWidth * outHeight];
+    }
+
+    // Plane buffers are read with absolute gets, their positions are left alone. The U and V planes must
+    // share strides, as they do for every YUV_420_888 source. rotationDegrees is the clockwise rotation
+    // that makes the frame upright (ImageInfo.getRotationDegrees()); out is filled row by row, upright.
+    public void convert(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                        ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                        int width, int height, int rotationDegrees, int[] out) {
+        if (out.length < outWidth * outHeight) {
+            throw new IllegalArgumentException("Output holds " + out.length + " pixels, need " + outWidth * outHeight);
+        }
+        prepare(width, height, yRowStride, yPixelStride, uvRowStride, uvPixelStride, rotationDegrees);
+
+        for (int i = 0; i < yOffsets.length; i++) {
+            int y = yPlane.get(yOffsets[i]) & 0xFF;
+            int uvOffset = uvOffsets[i];
+            int u = (uPlane.get(uvOffset) & 0xFF) - 128;
+            int v = (vPlane.get(uvOffset) & 0xFF) - 128;
+            out[i] = toArgb(y, u, v);
+        }
+    }
+
+    public int getOutWidth() {
+        return outWidth;
+    }
+
+    public int getOutHeight() {
+        return outHeight;
+    }
+
+    // Full-range BT.601, as camera YUV is, in 16.16 fixed point
+    static int toArgb(int y, int u, int v) {
+        int r = y + ((91881 * v) >> 16);
+        int g = y - ((22554 * u + 46802 * v) >> 16);
+        int b = y + ((116130 * u) >> 16);
+        return 0xFF000000 | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    // Rebuilds the offset tables when the frame geometry changes, which is normally only on the first frame
+    private void prepare(int width, int height, int yRowStride, int yPixelStride,
+                         int uvRowStride, int uvPixelStride, int rotationDegrees) {
+        if (width == this.width && height == this.height && yRowStride == this.yRowStride
+                && yPixelStride == this.yPixelStride && uvRowStride == this.uvRowStride
+                && uvPixelStride == this.uvPixelStride && rotationDegrees == this.rotationDegrees) {
+            return;
+        }
+        if (rotationDegrees % 90 != 0) {
+            throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+        }
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        boolean sideways = rotation == 90 || rotation == 270;
+        int uprightWidth = sideways ? height : width;
+        int uprightHeight = sideways ? width : height;
+
+        // Largest centered region of the upright frame with the output's aspect ratio
+        float scale = Math.min(uprightWidth / (float) outWidth, uprightHeight / (float) outHeight);
+        float cropLeft = (uprightWidth - outWidth * scale) / 2f;
+        float cropTop = (uprightHeight - outHeight * scale) / 2f;
+
+        int i = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            int uy = Math.min(uprightHeight - 1, (int) (cropTop + (oy + 0.5f) * scale));
+            for (int ox = 0; ox < outWidth; ox++) {
+                int ux = Math.min(uprightWidth - 1, (int) (cropLeft + (ox + 0.5f) * scale));
+                int sx;
+                int sy;
+                switch (rotation) {
+                    case 90:
+                        sx = uy;
+                        sy = height - 1 - ux;
+                        break;
+                    case 180:
+                        sx = width - 1 - ux;
+                        sy = height - 1 - uy;
+                        break;
+                    case 270:
+                        sx = width - 1 - uy;
+                        sy = ux;
+                        break;
+                    default:
+                        sx = ux;
+                        sy = uy;
+                        break;
+                }
+                yOffsets[i] = sy * yRowStride + sx * yPixelStride;
+                uvOffsets[i] = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                i++;
+            }
+        }
+
+        this.width = width;
+        this.height = height;
+        this.yRowStride = yRowStride;
+        this.yPixelStride = yPixelStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.rotationDegrees = rotationDegrees;
+    }
+}
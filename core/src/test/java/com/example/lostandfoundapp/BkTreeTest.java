@@ -0,0 +1,77 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BkTreeTest {
+
+    @Test
+    public void findsWithinRadiusClosestFirst() {
+        BkTree tree = new BkTree();
+        tree.put("exact", 0b1111L);
+        tree.put("oneBit", 0b1110L);
+        tree.put("threeBits", 0b1000L);
+        tree.put("far", 0xFFFF_0000L);
+
+        List<BkTree.Match> matches = tree.search(0b1111L, 3);
+        assertEquals(3, matches.size());
+        assertEquals("exact", matches.get(0).id);
+        assertEquals(0, matches.get(0).distance);
+        assertEquals("oneBit", matches.get(1).id);
+        assertEquals("threeBits", matches.get(2).id);
+        assertEquals(3, matches.get(2).distance);
+    }
+
+    @Test
+    public void matchesBruteForceOnRandomHashes() {
+        Random random = new Random(42);
+        BkTree tree = new BkTree();
+        long[] hashes = new long[2000];
+        for (int i = 0; i < hashes.length; i++) {
+            // Clustered, like photos of the same few items
+            hashes[i] = i % 5 == 0 ? random.nextLong() : hashes[i - 1 - random.nextInt(i % 5)] ^ (1L << random.nextInt(64));
+            tree.put("id" + i, hashes[i]);
+        }
+        for (int q = 0; q < 50; q++) {
+            long query = hashes[random.nextInt(hashes.length)] ^ (1L << random.nextInt(64));
+            Set<String> expected = new HashSet<>();
+            for (int i = 0; i < hashes.length; i++) {
+                if (PerceptualHash.distance(hashes[i], query) <= PerceptualHash.SAME_IMAGE_DISTANCE) {
+                    expected.add("id" + i);
+                }
+            }
+            Set<String> actual = new HashSet<>();
+            for (BkTree.Match match : tree.search(query, PerceptualHash.SAME_IMAGE_DISTANCE)) {
+                actual.add(match.id);
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void sharedHashesAndMovesAndRemoves() {
+        BkTree tree = new BkTree();
+        tree.put("a", 7L);
+        tree.put("b", 7L);
+        tree.put("c", 0L);
+        tree.put("a", 0xFFL); // Moved away from b
+        tree.remove("c");
+        assertEquals(2, tree.size());
+
+        List<String> ids = new ArrayList<>();
+        for (BkTree.Match match : tree.search(7L, 0)) {
+            ids.add(match.id);
+        }
+        assertEquals(1, ids.size());
+        assertEquals("b", ids.get(0));
+        assertTrue(tree.search(0L, 0).isEmpty()); // c's node stays for routing but holds no id
+        assertEquals("a", tree.search(0xFFL, 0).get(0).id);
+    }
+}
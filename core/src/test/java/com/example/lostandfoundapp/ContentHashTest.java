@@ -0,0 +1,34 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ContentHashTest {
+
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    public void hashesStreamContents() throws IOException {
+        byte[] abc = "abc".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(ABC_SHA256, ContentHash.sha256(new ByteArrayInputStream(abc)));
+    }
+
+    @Test
+    public void hashesBufferWithoutMovingIt() {
+        ByteBuffer buffer = ByteBuffer.wrap("xabc".getBytes(StandardCharsets.US_ASCII));
+        buffer.position(1);
+        assertEquals(ABC_SHA256, ContentHash.sha256(buffer));
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    public void hexKeepsLeadingZeros() {
+        assertEquals("000fff", ContentHash.toHex(new byte[]{0, 15, -1}));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingIndexTest {
+
+    @Test
+    public void quantizesLargestComponentTo127() {
+        EmbeddingIndex index = new EmbeddingIndex(4);
+        index.put("a", new float[]{0.5f, -1f, 0.25f, 0f});
+        byte[] row = new byte[4];
+        assertTrue(index.copyRow("a", row));
+        assertArrayEquals(new byte[]{64, -127, 32, 0}, row);
+        assertFalse(index.copyRow("missing", row));
+    }
+
+    @Test
+    public void ranksByCosineSimilarityBestFirst() {
+        EmbeddingIndex index = new EmbeddingIndex(3);
+        index.put("x", new float[]{1f, 0f, 0f});
+        index.put("y", new float[]{0f, 1f, 0f});
+        index.put("xy", new float[]{1f, 1f, 0f});
+        index.put("scaled", new float[]{30f, 1f, 0f}); // Cosine ignores length
+
+        String[] ids = new String[3];
+        float[] scores = new float[3];
+        assertEquals(3, index.search(new float[]{0.9f, 0.05f, 0f}, 3, ids, scores));
+        assertArrayEquals(new String[]{"scaled", "x", "xy"}, ids);
+        assertTrue(scores[0] >= scores[1] && scores[1] >= scores[2]);
+        assertEquals(1f, scores[1], 0.01f);
+    }
+
+    @Test
+    public void returnsFewerThanKWhenSmall() {
+        EmbeddingIndex index = new EmbeddingIndex(2);
+        index.put("a", new float[]{1f, 0f});
+        index.put("zero", new float[]{0f, 0f}); // Has no direction, never matches
+        String[] ids = new String[5];
+        float[] scores = new float[5];
+        assertEquals(1, index.search(new float[]{1f, 1f}, 5, ids, scores));
+        assertEquals("a", ids[0]);
+    }
+
+    @Test
+    public void putReplacesAndRemoveKeepsOtherRows() {
+        EmbeddingIndex index = new EmbeddingIndex(2);
+        index.put("a", new float[]{1f, 0f});
+        index.put("b", new float[]{0f, 1f});
+        index.put("c", new float[]{1f, 1f});
+        index.put("a", new float[]{0f, 1f});
+        index.remove("b");
+        assertEquals(2, index.size());
+
+        String[] ids = new String[1];
+        float[] scores = new float[1];
+        index.search(new float[]{0f, 1f}, 1, ids, scores);
+        assertEquals("a", ids[0]);
+        byte[] row = new byte[2];
+        assertTrue(index.copyRow("c", row)); // Moved into the removed row's place
+        assertArrayEquals(new byte[]{127, 127}, row);
+    }
+
+    @Test
+    public void restoredRowsScoreLikeTheOriginals() {
+        EmbeddingIndex original = new EmbeddingIndex(4);
+        original.put("a", new float[]{0.1f, 0.7f, -0.3f, 0.02f});
+        byte[] row = new byte[4];
+        original.copyRow("a", row);
+        EmbeddingIndex restored = new EmbeddingIndex(4);
+        restored.putRow("a", row);
+
+        float[] query = {0.2f, 0.5f, -0.1f, 0f};
+        String[] ids = new String[1];
+        float[] expected = new float[1];
+        float[] actual = new float[1];
+        original.search(query, 1, ids, expected);
+        restored.search(query, 1, ids, actual);
+        assertEquals(expected[0], actual[0], 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongDimension() {
+        new EmbeddingIndex(3).put("a", new float[]{1f, 2f});
+    }
+}
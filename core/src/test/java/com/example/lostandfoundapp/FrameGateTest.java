@@ -0,0 +1,77 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FrameGateTest {
+
+    @Test
+    public void dropsFramesWhileBusy() {
+        FrameGate gate = new FrameGate(1);
+        assertTrue(gate.tryAcquire());
+        assertFalse(gate.tryAcquire());
+        assertFalse(gate.tryAcquire());
+        assertEquals(1, gate.getInFlight());
+
+        gate.release();
+        assertTrue(gate.tryAcquire());
+        assertEquals(2, gate.getAccepted());
+        assertEquals(2, gate.getDropped());
+    }
+
+    @Test
+    public void allowsUpToMaxInFlight() {
+        FrameGate gate = new FrameGate(2);
+        assertTrue(gate.tryAcquire());
+        assertTrue(gate.tryAcquire());
+        assertFalse(gate.tryAcquire());
+        gate.release();
+        assertTrue(gate.tryAcquire());
+        assertEquals(2, gate.getInFlight());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsUnmatchedRelease() {
+        new FrameGate(1).release();
+    }
+
+    @Test
+    public void neverExceedsLimitUnderContention() throws InterruptedException {
+        FrameGate gate = new FrameGate(1);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int threads = 4;
+        int framesPerThread = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < framesPerThread; i++) {
+                    if (gate.tryAcquire()) {
+                        if (inside.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        inside.decrementAndGet();
+                        gate.release();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, gate.getInFlight());
+        assertEquals(threads * framesPerThread, gate.getAccepted() + gate.getDropped());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeoHashTest {
+
+    @Test
+    public void encodesKnownPoint() {
+        assertEquals("u4pruydqq", GeoHash.encode(57.64911, 10.40744, 9));
+        assertEquals("u4pru", GeoHash.encode(57.64911, 10.40744, 5));
+    }
+
+    @Test
+    public void measuresDistance() {
+        assertEquals(111195, GeoHash.distanceMeters(0, 0, 1, 0), 1);
+        assertEquals(0, GeoHash.distanceMeters(51.5, -0.12, 51.5, -0.12), 0);
+    }
+
+    @Test
+    public void coveringContainsEveryPointInRadius() {
+        Random random = new Random(7);
+        double[][] centres = {{51.5007, -0.1246}, {-33.8568, 151.2153}, {0.0001, 179.9999}, {89.9, 12}};
+        double[] radii = {25, 400, 5000};
+        for (double[] centre : centres) {
+            for (double radius : radii) {
+                List<GeoHash.Range> ranges = GeoHash.covering(centre[0], centre[1], radius);
+                assertTrue(ranges.size() <= 4);
+                for (int i = 0; i < 500; i++) {
+                    // A random point in the bounding square, kept if it lies inside the circle
+                    double lat = centre[0] + (random.nextDouble() * 2 - 1) * radius / 110574;
+                    double lng = centre[1] + (random.nextDouble() * 2 - 1) * radius / (110574 * Math.cos(Math.toRadians(centre[0])));
+                    lng = lng >= 180 ? lng - 360 : lng;
+                    if (lat > 90 || GeoHash.distanceMeters(centre[0], centre[1], lat, lng) > radius) {
+                        continue;
+                    }
+                    String hash = GeoHash.encode(lat, lng, GeoHash.STORED_PRECISION);
+                    assertTrue(hash + " outside " + ranges, inAny(hash, ranges));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void coveringStaysNearTheRadius() {
+        // Cells no bigger than needed: a 100 m search reads a few hundred metres, not a whole district
+        for (GeoHash.Range range : GeoHash.covering(51.5007, -0.1246, 100)) {
+            assertTrue(range.toString(), range.start.length() >= 6);
+        }
+    }
+
+    @Test
+    public void hugeRadiusCoversEverything() {
+        List<GeoHash.Range> ranges = GeoHash.covering(10, 10, 30000000);
+        assertEquals(1, ranges.size());
+        assertTrue(inAny(GeoHash.encode(-80, -170, 9), ranges));
+    }
+
+    private static boolean inAny(String hash, List<GeoHash.Range> ranges) {
+        for (GeoHash.Range range : ranges) {
+            if (hash.compareTo(range.start) >= 0 && hash.compareTo(range.end) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LabelSmootherTest {
+
+    @Test
+    public void noLabelBeforeFirstFrame() {
+        LabelSmoother smoother = new LabelSmoother(4, 3);
+        assertEquals(-1, smoother.topLabel());
+        assertEquals(0f, smoother.averageScore(0), 0f);
+    }
+
+    @Test
+    public void singleOutlierDoesNotFlipLabel() {
+        LabelSmoother smoother = new LabelSmoother(4, 3);
+        assertEquals(0, smoother.add(new float[]{0.8f, 0.1f, 0.1f}));
+        assertEquals(0, smoother.add(new float[]{0.7f, 0.2f, 0.1f}));
+        assertEquals(0, smoother.add(new float[]{0.1f, 0.9f, 0.0f}));
+        assertEquals(0.533f, smoother.averageScore(0), 0.001f);
+    }
+
+    @Test
+    public void oldFramesLeaveTheWindow() {
+        LabelSmoother smoother = new LabelSmoother(2, 2);
+        smoother.add(new float[]{1f, 0f});
+        smoother.add(new float[]{1f, 0f});
+        assertEquals(0, smoother.add(new float[]{0f, 1f}));
+        assertEquals(1, smoother.add(new float[]{0.2f, 0.8f}));
+        assertEquals(2, smoother.size());
+        assertArrayEquals(new float[]{0.1f, 0.9f}, smoother.averageScores(), 0.0001f);
+    }
+
+    @Test
+    public void clearStartsOver() {
+        LabelSmoother smoother = new LabelSmoother(3, 2);
+        smoother.add(new float[]{1f, 0f});
+        smoother.clear();
+        assertEquals(-1, smoother.topLabel());
+        assertEquals(1, smoother.add(new float[]{0.3f, 0.7f}));
+        assertEquals(0.7f, smoother.averageScore(1), 0.0001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongScoreCount() {
+        new LabelSmoother(3, 2).add(new float[]{1f});
+    }
+}
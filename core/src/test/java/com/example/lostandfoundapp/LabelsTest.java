@@ -0,0 +1,35 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LabelsTest {
+
+    @Test
+    public void dropsLeadingClassNumber() {
+        assertEquals("mobile phone", Labels.clean("0 Mobile Phone"));
+        assertEquals("wallet", Labels.clean("  12  Wallet "));
+    }
+
+    @Test
+    public void keepsLabelsWithoutClassNumber() {
+        assertEquals("mobile phone", Labels.clean("Mobile Phone"));
+        assertEquals("3d glasses", Labels.clean("3d glasses"));
+        assertEquals("42", Labels.clean("42"));
+    }
+
+    @Test
+    public void argmaxPicksFirstHighest() {
+        assertEquals(1, Scores.argmax(new float[]{0.1f, 0.7f, 0.2f, 0.7f}));
+    }
+
+    @Test
+    public void dequantizesUnsignedAndSigned() {
+        float[] out = new float[2];
+        Scores.dequantize(new byte[]{(byte) 255, 0}, true, 1 / 255f, 0, out);
+        assertArrayEquals(new float[]{1f, 0f}, out, 1e-6f);
+        Scores.dequantize(new byte[]{127, -128}, false, 1 / 255f, -128, out);
+        assertArrayEquals(new float[]{1f, 0f}, out, 1e-6f);
+    }
+}
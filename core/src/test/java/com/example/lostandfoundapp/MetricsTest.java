@@ -0,0 +1,98 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.setEnabled(true);
+        Metrics.reset();
+    }
+
+    @Test
+    public void bucketsAreLog2OfMicros() {
+        assertEquals(0, Metrics.bucketOf(0));
+        assertEquals(1, Metrics.bucketOf(1));
+        assertEquals(2, Metrics.bucketOf(2));
+        assertEquals(2, Metrics.bucketOf(3));
+        assertEquals(11, Metrics.bucketOf(1500));
+        assertEquals(Metrics.BUCKETS - 1, Metrics.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesUseBucketUpperBounds() {
+        long[] buckets = new long[Metrics.BUCKETS];
+        buckets[3] = 90; // 4..8 us
+        buckets[10] = 10; // 512..1024 us
+        assertEquals(8, Metrics.percentileMicros(buckets, 100, 0.5));
+        assertEquals(8, Metrics.percentileMicros(buckets, 100, 0.9));
+        assertEquals(1024, Metrics.percentileMicros(buckets, 100, 0.99));
+    }
+
+    @Test
+    public void recordsStagesAndCounters() {
+        Metrics.recordNanos(Metrics.Stage.DECODE, 5000);
+        Metrics.recordNanos(Metrics.Stage.DECODE, 700000);
+        Metrics.increment(Metrics.Counter.INTERPRETER_RUNS);
+        Metrics.add(Metrics.Counter.IMAGES_CLASSIFIED, 8);
+
+        assertEquals(2, Metrics.count(Metrics.Stage.DECODE));
+        assertEquals(1, Metrics.get(Metrics.Counter.INTERPRETER_RUNS));
+        String json = Metrics.toJson();
+        assertTrue(json, json.contains("\"decode\":{\"count\":2,\"meanUs\":352,\"maxUs\":700,\"p50Us\":8,"));
+        assertTrue(json, json.contains("\"histogramUs\":{\"<8\":1,\"<1024\":1}"));
+        assertTrue(json, json.contains("\"interpreterRuns\":1,\"imagesClassified\":8"));
+        assertFalse(json, json.contains("\"inference\""));
+    }
+
+    @Test
+    public void disabledRecordsNothing() {
+        Metrics.setEnabled(false);
+        long start = Metrics.start();
+        Metrics.record(Metrics.Stage.INFERENCE, start);
+        Metrics.increment(Metrics.Counter.INTERPRETER_RUNS);
+        Metrics.setEnabled(true);
+        Metrics.record(Metrics.Stage.INFERENCE, start); // Started while disabled, still ignored
+
+        assertEquals(0, Metrics.count(Metrics.Stage.INFERENCE));
+        assertEquals(0, Metrics.get(Metrics.Counter.INTERPRETER_RUNS));
+    }
+
+    @Test
+    public void tracksPeakBitmapBytes() {
+        long base = Metrics.getBitmapBytes();
+        Metrics.bitmapAllocated(1000);
+        Metrics.bitmapAllocated(500);
+        Metrics.bitmapReleased(1000);
+        assertEquals(base + 500, Metrics.getBitmapBytes());
+        assertEquals(base + 1500, Metrics.getPeakBitmapBytes());
+
+        Metrics.reset();
+        assertEquals(base + 500, Metrics.getPeakBitmapBytes());
+        Metrics.bitmapReleased(500);
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    Metrics.recordNanos(Metrics.Stage.PREPROCESS, i * 1000L);
+                    Metrics.increment(Metrics.Counter.FRAMES_DROPPED);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, Metrics.count(Metrics.Stage.PREPROCESS));
+        assertEquals(40000, Metrics.get(Metrics.Counter.FRAMES_DROPPED));
+        assertTrue(Metrics.toJson().contains("\"maxUs\":9999"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PerceptualHashTest {
+
+    // A diagonal gradient with some structure, as ARGB pixels
+    private static int[] image(int width, int height, int brightnessOffset) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = (x * 255 / width + ((y / (height / 4 + 1)) % 2) * 60 + brightnessOffset) & 0xFF;
+                v = Math.min(255, Math.max(0, v));
+                pixels[y * width + x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    public void sameImageAtAnotherSizeHashesAlike() {
+        long large = PerceptualHash.dHash(image(360, 240, 0), 360, 240);
+        long small = PerceptualHash.dHash(image(90, 60, 0), 90, 60);
+        assertTrue(PerceptualHash.distance(large, small) <= PerceptualHash.SAME_IMAGE_DISTANCE);
+    }
+
+    @Test
+    public void uniformBrightnessChangeKeepsTheHash() {
+        // Each bit compares neighbouring cells, so lifting every pixel equally changes nothing
+        int[] base = new int[64 * 64];
+        int[] brighter = new int[64 * 64];
+        for (int i = 0; i < base.length; i++) {
+            int v = (i * 7919) % 200;
+            base[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            brighter[i] = 0xFF000000 | ((v + 40) << 16) | ((v + 40) << 8) | (v + 40);
+        }
+        assertEquals(PerceptualHash.dHash(base, 64, 64), PerceptualHash.dHash(brighter, 64, 64));
+    }
+
+    @Test
+    public void mirroredImageIsFarAway() {
+        int width = 90, height = 60;
+        int[] pixels = image(width, height, 0);
+        int[] mirrored = new int[pixels.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                mirrored[y * width + x] = pixels[y * width + (width - 1 - x)];
+            }
+        }
+        long a = PerceptualHash.dHash(pixels, width, height);
+        long b = PerceptualHash.dHash(mirrored, width, height);
+        assertTrue(PerceptualHash.distance(a, b) > PerceptualHash.SAME_IMAGE_DISTANCE);
+    }
+
+    @Test
+    public void distanceCountsDifferingBits() {
+        assertEquals(0, PerceptualHash.distance(0x1234L, 0x1234L));
+        assertEquals(64, PerceptualHash.distance(0L, -1L));
+        assertEquals(2, PerceptualHash.distance(0b1010L, 0b0110L));
+    }
+
+    @Test
+    public void hexRoundTripsIncludingTopBit() {
+        long hash = 0x8000_0000_0000_00ffL;
+        assertEquals("80000000000000ff", PerceptualHash.toHex(hash));
+        assertEquals(hash, PerceptualHash.fromHex("80000000000000ff"));
+        assertEquals("000000000000000a", PerceptualHash.toHex(10));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsShortHex() {
+        PerceptualHash.fromHex("abc");
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PixelNormalizerTest {
+
+    @Test
+    public void normalizesChannelsToUnitRangeInRgbOrder() {
+        PixelNormalizer normalizer = PixelNormalizer.forFloat();
+        assertFalse(normalizer.isQuantized());
+        float[] out = new float[6];
+        normalizer.normalize(new int[]{0xFFFF8000, 0x000000FF}, out);
+        assertArrayEquals(new float[]{1f, 128 / 255f, 0f, 0f, 0f, 1f}, out, 1e-6f);
+    }
+
+    @Test
+    public void quantizesThroughScaleAndZeroPoint() {
+        // uint8 with scale 1/128 and zero point 10: q = round(v / 255 * 128) + 10
+        PixelNormalizer normalizer = PixelNormalizer.forQuantized(true, 1f / 128, 10);
+        assertTrue(normalizer.isQuantized());
+        byte[] out = new byte[6];
+        normalizer.quantize(new int[]{0xFFFF8000, 0xFF0A1440}, out);
+        assertEquals(138, out[0] & 0xFF);
+        assertEquals(74, out[1] & 0xFF);
+        assertEquals(10, out[2] & 0xFF);
+        assertEquals(15, out[3] & 0xFF);
+        assertEquals(20, out[4] & 0xFF);
+        assertEquals(42, out[5] & 0xFF);
+    }
+
+    @Test
+    public void clampsToTheTypeRange() {
+        // int8 with zero point 0 can only hold the lower half of 0..1 at scale 1/255
+        byte[] out = new byte[3];
+        PixelNormalizer.forQuantized(false, 1f / 255, 0).quantize(new int[]{0xFFFF7F00}, out);
+        assertArrayEquals(new byte[]{127, 127, 0}, out);
+
+        PixelNormalizer.forQuantized(true, 1f / 255, 100).quantize(new int[]{0xFFFF0000}, out);
+        assertEquals(255, out[0] & 0xFF);
+        assertEquals(100, out[1] & 0xFF);
+    }
+
+    @Test
+    public void unitScaleIsAByteCopy() {
+        int[] pixels = new int[256];
+        for (int v = 0; v < 256; v++) {
+            pixels[v] = 0xFF000000 | v << 16 | (255 - v) << 8 | v;
+        }
+        byte[] unsigned = new byte[pixels.length * 3];
+        byte[] signed = new byte[pixels.length * 3];
+        PixelNormalizer.forQuantized(true, 1f / 255, 0).quantize(pixels, unsigned);
+        PixelNormalizer.forQuantized(false, 1f / 255, -128).quantize(pixels, signed);
+        for (int v = 0; v < 256; v++) {
+            assertEquals(v, unsigned[v * 3] & 0xFF);
+            assertEquals(255 - v, unsigned[v * 3 + 1] & 0xFF);
+            assertEquals(v - 128, signed[v * 3]);
+            assertEquals(127 - v, signed[v * 3 + 1]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingScale() {
+        PixelNormalizer.forQuantized(true, 0f, 0);
+    }
+}
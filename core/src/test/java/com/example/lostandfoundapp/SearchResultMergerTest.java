@@ -0,0 +1,52 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SearchResultMergerTest {
+
+    // "id:label", so copies of one document can be told apart
+    private static SearchResultMerger<String> newMerger() {
+        return new SearchResultMerger<>(item -> item.startsWith(":") ? null : item.substring(0, item.indexOf(':')));
+    }
+
+    @Test
+    public void keepsFirstCopyOfEachIdInOrder() {
+        SearchResultMerger<String> merger = newMerger();
+        assertTrue(merger.addAll(Arrays.asList("b:name", "a:name", "c:name")));
+        assertTrue(merger.addAll(Arrays.asList("a:label", "d:label", "b:label")));
+        assertEquals(Arrays.asList("b:name", "a:name", "c:name", "d:label"), merger.getResults());
+        assertEquals(4, merger.size());
+    }
+
+    @Test
+    public void dropsRepeatsWithinOneBatch() {
+        SearchResultMerger<String> merger = newMerger();
+        merger.addAll(Arrays.asList("a:1", "a:2", "b:1", "a:3"));
+        assertEquals(Arrays.asList("a:1", "b:1"), merger.getResults());
+    }
+
+    @Test
+    public void reportsWhetherAnythingWasAdded() {
+        SearchResultMerger<String> merger = newMerger();
+        merger.addAll(Arrays.asList("a:1", "b:1"));
+        assertFalse(merger.addAll(Arrays.asList("b:2", "a:2")));
+        assertFalse(merger.addAll(Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void keepsItemsWithoutAnId() {
+        SearchResultMerger<String> merger = newMerger();
+        merger.addAll(Arrays.asList(":x", "a:1", ":x"));
+        assertEquals(Arrays.asList(":x", "a:1", ":x"), merger.getResults());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void resultsAreReadOnly() {
+        newMerger().getResults().add("a:1");
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest {
+
+    private static String[] search(TrigramIndex index, String query) {
+        String[] keys = new String[10];
+        float[] scores = new float[10];
+        int found = index.search(query, 10, keys, scores);
+        String[] results = new String[found];
+        System.arraycopy(keys, 0, results, 0, found);
+        return results;
+    }
+
+    @Test
+    public void findsWholeWordsInAnyField() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("a", "Black Wallet", "wallets", "wallet");
+        index.put("b", "Mobile Phone", "electronics", "cellular telephone");
+        assertArrayEquals(new String[]{"b"}, search(index, "phone"));
+        assertArrayEquals(new String[]{"a"}, search(index, "WALLET"));
+        assertArrayEquals(new String[]{"b"}, search(index, "electronics"));
+    }
+
+    @Test
+    public void findsWordPrefixes() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("b", "phone");
+        index.put("c", "umbrella");
+        assertArrayEquals(new String[]{"b"}, search(index, "pho"));
+        assertArrayEquals(new String[]{"b"}, search(index, "ph"));
+        assertArrayEquals(new String[]{"c"}, search(index, "umbr"));
+    }
+
+    @Test
+    public void toleratesTypos() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("b", "phone");
+        index.put("d", "backpack");
+        assertArrayEquals(new String[]{"b"}, search(index, "phnoe"));
+        assertArrayEquals(new String[]{"d"}, search(index, "bakcpack"));
+        assertEquals(0, search(index, "laptop").length);
+    }
+
+    @Test
+    public void ranksShorterAndWordStartMatchesFirst() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("long", "blue phone case with card holder");
+        index.put("short", "phone");
+        assertArrayEquals(new String[]{"short", "long"}, search(index, "phone"));
+    }
+
+    @Test
+    public void putReplacesAndRemoveDrops() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("a", "red umbrella");
+        index.put("a", "green scarf");
+        assertEquals(0, search(index, "umbrella").length);
+        assertArrayEquals(new String[]{"a"}, search(index, "scarf"));
+        index.remove("a");
+        assertEquals(0, search(index, "scarf").length);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void survivesCompaction() {
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < 3000; i++) {
+            index.put("k" + i, "item" + i, i % 2 == 0 ? "keys" : "gloves");
+        }
+        for (int i = 0; i < 2500; i++) {
+            index.remove("k" + i);
+        }
+        assertEquals(500, index.size());
+        assertEquals("k2999", search(index, "item2999")[0]);
+        for (String key : search(index, "item1000")) {
+            assertNotEquals("k1000", key); // Removed before compaction
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.lostandfoundapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvConverterTest {
+
+    // Grey frame whose luma encodes each pixel's position, so the output shows where every pixel came from
+    private static ByteBuffer lumaPlane(int width, int height, int rowStride) {
+        byte[] y = new byte[rowStride * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                y[row * rowStride + col] = (byte) (row * 100 + col * 10);
+            }
+        }
+        return ByteBuffer.wrap(y);
+    }
+
+    private static ByteBuffer filled(int size, int value) {
+        byte[] bytes = new byte[size];
+        java.util.Arrays.fill(bytes, (byte) value);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static int grey(int value) {
+        return 0xFF000000 | (value << 16) | (value << 8) | value;
+    }
+
+    @Test
+    public void neutralChromaGivesGrey() {
+        assertEquals(grey(0), YuvConverter.toArgb(0, 0, 0));
+        assertEquals(grey(128), YuvConverter.toArgb(128, 0, 0));
+        assertEquals(grey(255), YuvConverter.toArgb(255, 0, 0));
+    }
+
+    @Test
+    public void convertsPrimaryColors() {
+        int red = YuvConverter.toArgb(76, 85 - 128, 255 - 128);
+        assertTrue(((red >> 16) & 0xFF) > 250);
+        assertTrue(((red >> 8) & 0xFF) < 5);
+        assertTrue((red & 0xFF) < 5);
+
+        int blue = YuvConverter.toArgb(29, 255 - 128, 107 - 128);
+        assertTrue(((blue >> 16) & 0xFF) < 5);
+        assertTrue(((blue >> 8) & 0xFF) < 5);
+        assertTrue((blue & 0xFF) > 250);
+    }
+
+    @Test
+    public void centerCropsToOutputAspect() {
+        // 4x2 frame into 2x2: the middle two columns survive
+        YuvConverter converter = new YuvConverter(2, 2);
+        int[] out = new int[4];
+        ByteBuffer chroma = filled(4, 128);
+        converter.convert(lumaPlane(4, 2, 4), 4, 1, chroma, chroma, 2, 1, 4, 2, 0, out);
+        assertArrayEquals(new int[]{grey(10), grey(20), grey(110), grey(120)}, out);
+    }
+
+    @Test
+    public void downscalesBySampling() {
+        // 4x4 frame into 2x2 takes the pixel nearest each output pixel's center
+        byte[] y = new byte[16];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = (byte) ((i / 4) * 40 + (i % 4) * 10);
+        }
+        YuvConverter converter = new YuvConverter(2, 2);
+        int[] out = new int[4];
+        ByteBuffer chroma = filled(4, 128);
+        converter.convert(ByteBuffer.wrap(y), 4, 1, chroma, chroma, 2, 1, 4, 4, 0, out);
+        assertArrayEquals(new int[]{grey(50), grey(70), grey(130), grey(150)}, out);
+    }
+
+    @Test
+    public void rotatesClockwise() {
+        // A 4x2 frame rotated 90 degrees is 2 wide and 4 tall; its top-left pixel is the frame's bottom-left
+        YuvConverter converter = new YuvConverter(2, 4);
+        int[] out = new int[8];
+        ByteBuffer chroma = filled(4, 128);
+        converter.convert(lumaPlane(4, 2, 4), 4, 1, chroma, chroma, 2, 1, 4, 2, 90, out);
+        assertArrayEquals(new int[]{
+                grey(100), grey(0),
+                grey(110), grey(10),
+                grey(120), grey(20),
+                grey(130), grey(30)}, out);
+    }
+
+    @Test
+    public void rotatesUpsideDownAndCounterClockwise() {
+        ByteBuffer chroma = filled(4, 128);
+
+        YuvConverter flipped = new YuvConverter(4, 2);
+        int[] out = new int[8];
+        flipped.convert(lumaPlane(4, 2, 4), 4, 1, chroma, chroma, 2, 1, 4, 2, 180, out);
+        assertArrayEquals(new int[]{
+                grey(130), grey(120), grey(110), grey(100),
+                grey(30), grey(20), grey(10), grey(0)}, out);
+
+        YuvConverter turned = new YuvConverter(2, 4);
+        out = new int[8];
+        turned.convert(lumaPlane(4, 2, 4), 4, 1, chroma, chroma, 2, 1, 4, 2, 270, out);
+        assertArrayEquals(new int[]{
+                grey(30), grey(130),
+                grey(20), grey(120),
+                grey(10), grey(110),
+                grey(0), grey(100)}, out);
+    }
+
+    @Test
+    public void honoursRowPaddingAndInterleavedChroma() {
+        // 4x2 frame with padded rows and NV12-style interleaved chroma (pixel stride 2):
+        // the left 2x2 block is red, the right one blue
+        int yRowStride = 8;
+        byte[] y = new byte[yRowStride * 2];
+        for (int row = 0; row < 2; row++) {
+            y[row * yRowStride] = 76;
+            y[row * yRowStride + 1] = 76;
+            y[row * yRowStride + 2] = 29;
+            y[row * yRowStride + 3] = 29;
+            y[row * yRowStride + 4] = (byte) 0xEE; // Padding, never read
+        }
+        byte[] uv = {85, (byte) 255, (byte) 255, 107, 0, 0, 0, 0};
+        ByteBuffer uPlane = ByteBuffer.wrap(uv);
+        ByteBuffer vPlane = ByteBuffer.wrap(uv, 1, uv.length - 1).slice();
+
+        YuvConverter converter = new YuvConverter(4, 2);
+        int[] out = new int[8];
+        converter.convert(ByteBuffer.wrap(y), yRowStride, 1, uPlane, vPlane, 8, 2, 4, 2, 0, out);
+        for (int row = 0; row < 2; row++) {
+            for (int col = 0; col < 4; col++) {
+                int pixel = out[row * 4 + col];
+                int r = (pixel >> 16) & 0xFF;
+                int b = pixel & 0xFF;
+                if (col < 2) {
+                    assertTrue("red at " + col + "," + row, r > 250 && b < 5);
+                } else {
+                    assertTrue("blue at " + col + "," + row, b > 250 && r < 5);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rebuildsTablesWhenGeometryChanges() {
+        YuvConverter converter = new YuvConverter(2, 2);
+        int[] out = new int[4];
+        ByteBuffer chroma = filled(4, 128);
+        converter.convert(lumaPlane(4, 2, 4), 4, 1, chroma, chroma, 2, 1, 4, 2, 0, out);
+        converter.convert(lumaPlane(2, 2, 2), 2, 1, chroma, chroma, 1, 1, 2, 2, 0, out);
+        assertArrayEquals(new int[]{grey(0), grey(10), grey(100), grey(110)}, out);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortOutput() {
+        ByteBuffer chroma = filled(4, 128);
+        new YuvConverter(2, 2).convert(lumaPlane(2, 2, 2), 2, 1, chroma, chroma, 1, 1, 2, 2, 0, new int[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddRotation() {
+        ByteBuffer chroma = filled(4, 128);
+        new YuvConverter(2, 2).convert(lumaPlane(2, 2, 2), 2, 1, chroma, chroma, 1, 1, 2, 2, 45, new int[4]);
+    }
+}
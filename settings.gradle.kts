@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "LostAndFoundApp"
 include(":app")
+include(":core")
+include(":benchmark")